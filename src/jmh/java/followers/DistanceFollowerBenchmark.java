@@ -0,0 +1,70 @@
+package followers;
+
+import gen.BenchmarkPaths;
+import gen.Trajectory;
+import gen.TrajectoryBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DistanceFollowerBenchmark.java
+ *
+ * Time of one follower update. The robot is simulated lagging
+ * behind the profile by 20% so the searches have to move
+ * more than one point at a time.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceFollowerBenchmark {
+
+    /** Time between updates of a 50hz control loop. */
+    private static final double PERIOD = 0.02;
+
+    private DistanceFollower follower;
+    private TrajectoryBuffer traj;
+    private double elapsed, covered;
+
+    @Setup
+    public void setup() {
+        traj = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.MEDIUM.getRate(),
+                BenchmarkPaths.TIGHTNESS, 0.01, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, BenchmarkPaths.auto()).getBuffer();
+        follower = new DistanceFollower(traj);
+        follower.configurePIDVA(1, 0, 0.1, 1 / BenchmarkPaths.VELOCITY, 0);
+    }
+
+    /** Starts over when the end of the profile is reached. */
+    private void step() {
+        elapsed += PERIOD;
+        covered += PERIOD * BenchmarkPaths.VELOCITY * 0.8;
+        if (follower.isFinished()) {
+            follower.reset();
+            elapsed = covered = 0;
+        }
+    }
+
+    @Benchmark
+    public double update() {
+        step();
+        return follower.update(covered);
+    }
+
+    @Benchmark
+    public double updateByTime() {
+        step();
+        return follower.updateByTime(elapsed, covered);
+    }
+
+    @Benchmark
+    public double updateByDistance() {
+        step();
+        return follower.updateByDistance(covered);
+    }
+
+}
@@ -0,0 +1,48 @@
+package gen;
+
+/**
+ * BenchmarkPaths.java
+ *
+ * Paths shared by the benchmarks.
+ */
+
+public class BenchmarkPaths {
+
+    /** Generation settings used unless a benchmark says otherwise. */
+    public static final double TIGHTNESS = 1.2, DT = 0.05,
+                               VELOCITY = 4, ACCELERATION = 3, JERK = 60;
+
+    /**
+     * @return a short path with a left turn and a right turn.
+     */
+    public static Waypoint[] auto() {
+        return new Waypoint[] {
+                new Waypoint(0, 0, 0),
+                new Waypoint(5, 5, Math.PI / 2),
+                new Waypoint(10, 3, -Math.PI / 4),
+                new Waypoint(14, 0, 0)
+        };
+    }
+
+    /**
+     * @param n amount of waypoints.
+     * @return a path that weaves left and right n times.
+     */
+    public static Waypoint[] zigzag(int n) {
+        Waypoint[] waypoints = new Waypoint[n];
+        for (int i = 0; i < n; i++) {
+            waypoints[i] = new Waypoint(i * 3, (i % 2) * 4, (i % 3 - 1) * 0.5);
+        }
+        return waypoints;
+    }
+
+    /**
+     * @param method type of spline.
+     * @param sampleRate points per segment.
+     * @return a trajectory of the auto path.
+     */
+    public static Trajectory trajectory(Trajectory.FitMethod method, int sampleRate) {
+        return new Trajectory(method, sampleRate, TIGHTNESS, DT, VELOCITY, ACCELERATION, JERK, auto());
+    }
+
+}
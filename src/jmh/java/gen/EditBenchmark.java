@@ -0,0 +1,55 @@
+package gen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EditBenchmark.java
+ *
+ * Regenerating a 30 waypoint path after one waypoint is moved,
+ * from scratch and from the trajectory before the edit.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EditBenchmark {
+
+    /** Index of the waypoint that gets moved, in the middle of the path. */
+    private static final int EDITED = 15;
+
+    @Param({"CUBIC_HERMITE", "QUINTIC_HERMITE"})
+    public Trajectory.FitMethod method;
+
+    @Param({"LOW", "MEDIUM"})
+    public Trajectory.SampleRate sampleRate;
+
+    private Waypoint[] edited;
+    private Trajectory before;
+
+    @Setup
+    public void setup() {
+        Waypoint[] path = BenchmarkPaths.zigzag(30);
+        // made by an edit, so it keeps its samples like the trajectory being dragged in the gui
+        before = new Trajectory(method, sampleRate.getRate(), BenchmarkPaths.TIGHTNESS, BenchmarkPaths.DT,
+                BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION, BenchmarkPaths.JERK, path).withWaypoints(path);
+        edited = path.clone();
+        edited[EDITED] = path[EDITED].offset(0.5, -0.5);
+    }
+
+    @Benchmark
+    public Trajectory full() {
+        return new Trajectory(method, sampleRate.getRate(), BenchmarkPaths.TIGHTNESS, BenchmarkPaths.DT,
+                BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION, BenchmarkPaths.JERK, edited);
+    }
+
+    @Benchmark
+    public Trajectory incremental() {
+        return before.moveWaypoint(EDITED, edited[EDITED]);
+    }
+
+}
@@ -0,0 +1,54 @@
+package gen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PathLibraryBenchmark.java
+ *
+ * Time it takes to make a routine of five legs by stitching legs that
+ * were generated before, next to generating the whole path.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathLibraryBenchmark {
+
+    private static final String[] ROUTINE = {"leg0", "leg1", "leg2", "leg3", "leg4"};
+
+    private PathLibrary library;
+    private Waypoint[] path;
+    private TrajectoryBuffer into;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPaths.zigzag(ROUTINE.length + 1);
+        library = new PathLibrary(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.HIGH.getRate(),
+                BenchmarkPaths.TIGHTNESS, 0.01, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, null);
+        for (int k = 0; k < ROUTINE.length; k++) {
+            library.define(ROUTINE[k], path[k], path[k + 1]);
+        }
+        library.precompute();
+        into = new TrajectoryBuffer(0);
+    }
+
+    @Benchmark
+    public TrajectoryBuffer stitch() {
+        library.stitch(into, BenchmarkPaths.VELOCITY, ROUTINE);
+        return into;
+    }
+
+    @Benchmark
+    public TrajectoryBuffer generate() {
+        return new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.HIGH.getRate(),
+                BenchmarkPaths.TIGHTNESS, 0.01, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, path).getBuffer();
+    }
+
+}
@@ -0,0 +1,70 @@
+package gen;
+
+import gen.segments.CubicBezierSegment.CubicBezierSegmentFactory;
+import gen.segments.CubicHermiteSegment.CubicHermiteSegmentFactory;
+import gen.segments.QuinticBezierSegment.QuinticBezierSegmentFactory;
+import gen.segments.QuinticHermiteSegment.QuinticHermiteSegmentFactory;
+import gen.segments.Segment.SegmentFactory;
+import gen.segments.SegmentState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SplineBenchmark.java
+ *
+ * Time it takes to find a single waypoint on a spline.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplineBenchmark {
+
+    @Param
+    public Trajectory.FitMethod method;
+
+    private Spline spline;
+    private SegmentState state;
+    private double alpha;
+
+    /**
+     * @param method type of spline.
+     * @return the segment generator for that spline.
+     */
+    static SegmentFactory factory(Trajectory.FitMethod method) {
+        switch (method) {
+            case CUBIC_BEZIER:    return new CubicBezierSegmentFactory();
+            case QUINTIC_HERMITE: return new QuinticHermiteSegmentFactory();
+            case QUINTIC_BEZIER:  return new QuinticBezierSegmentFactory();
+            default:              return new CubicHermiteSegmentFactory();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        spline = new Spline(BenchmarkPaths.TIGHTNESS, factory(method), BenchmarkPaths.zigzag(20));
+        state = new SegmentState();
+        alpha = 0;
+    }
+
+    @Benchmark
+    public Waypoint getWaypoint() {
+        // walk along the spline so every segment is hit
+        alpha += 0.000123;
+        if (alpha > 1) alpha -= 1;
+        return spline.getWaypoint(alpha);
+    }
+
+    @Benchmark
+    public SegmentState evaluate() {
+        alpha += 0.000123;
+        if (alpha > 1) alpha -= 1;
+        spline.evaluate(alpha, state);
+        return state;
+    }
+
+}
@@ -0,0 +1,46 @@
+package gen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SplineScalingBenchmark.java
+ *
+ * Generation time as the amount of waypoints grows, with a fixed
+ * sample rate the time per waypoint should stay about the same.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplineScalingBenchmark {
+
+    /** Points per segment, kept low so long paths stay reasonable. */
+    private static final int SAMPLE_RATE = 100;
+
+    @Param({"2", "10", "100", "1000", "10000"})
+    public int waypoints;
+
+    private Waypoint[] path;
+
+    @Setup
+    public void setup() {
+        path = BenchmarkPaths.zigzag(waypoints);
+    }
+
+    @Benchmark
+    public Spline spline() {
+        return new Spline(BenchmarkPaths.TIGHTNESS, SplineBenchmark.factory(Trajectory.FitMethod.CUBIC_HERMITE), path);
+    }
+
+    @Benchmark
+    public Trajectory trajectory() {
+        return new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, SAMPLE_RATE, BenchmarkPaths.TIGHTNESS, BenchmarkPaths.DT,
+                BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION, BenchmarkPaths.JERK, path);
+    }
+
+}
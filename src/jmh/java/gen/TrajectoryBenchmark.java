@@ -0,0 +1,31 @@
+package gen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TrajectoryBenchmark.java
+ *
+ * Time it takes to generate a trajectory for every fit method and sample rate.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrajectoryBenchmark {
+
+    @Param
+    public Trajectory.FitMethod method;
+    @Param
+    public Trajectory.SampleRate rate;
+
+    @Benchmark
+    public Trajectory generate() {
+        return BenchmarkPaths.trajectory(method, rate.getRate());
+    }
+
+}
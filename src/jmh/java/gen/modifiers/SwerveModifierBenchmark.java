@@ -0,0 +1,40 @@
+package gen.modifiers;
+
+import gen.BenchmarkPaths;
+import gen.Trajectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SwerveModifierBenchmark.java
+ *
+ * Time it takes to split a center trajectory into four swerve modules.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwerveModifierBenchmark {
+
+    @Param({"0.001", "0.01", "0.05"})
+    public double dt;
+
+    private Trajectory center;
+
+    @Setup
+    public void setup() {
+        center = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.HIGH.getRate(),
+                BenchmarkPaths.TIGHTNESS, dt, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, BenchmarkPaths.auto());
+    }
+
+    @Benchmark
+    public SwerveModifier modify() {
+        return new SwerveModifier(center, 2, 2);
+    }
+
+}
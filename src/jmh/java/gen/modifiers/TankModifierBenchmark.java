@@ -0,0 +1,40 @@
+package gen.modifiers;
+
+import gen.BenchmarkPaths;
+import gen.Trajectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TankModifierBenchmark.java
+ *
+ * Time it takes to split a center trajectory into left and right.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TankModifierBenchmark {
+
+    @Param({"0.01", "0.05"})
+    public double dt;
+
+    private Trajectory center;
+
+    @Setup
+    public void setup() {
+        center = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.MEDIUM.getRate(),
+                BenchmarkPaths.TIGHTNESS, dt, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, BenchmarkPaths.auto());
+    }
+
+    @Benchmark
+    public TankModifier modify() {
+        return new TankModifier(center, 1);
+    }
+
+}
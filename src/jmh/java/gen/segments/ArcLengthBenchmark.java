@@ -0,0 +1,108 @@
+package gen.segments;
+
+import gen.BenchmarkPaths;
+import gen.Waypoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArcLengthBenchmark.java
+ *
+ * Time it takes to find the length of a segment with the adaptive
+ * quadrature at different tolerances, next to the fixed 2 or 3 point
+ * rule segments used before. The "evaluations" counter is speeds
+ * evaluated per second, divide it by the score for the evaluations of
+ * one length. The error of each way against a very tight quadrature is
+ * printed once per fork.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArcLengthBenchmark {
+
+    /** Counts the speeds evaluated, reported per microsecond. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Evaluations {
+        public long evaluations;
+    }
+
+    /** The rules cubic and quintic segments used before. */
+    private static final double[] WEIGHTS_2 = {1.0000000000000000, 1.0000000000000000};
+    private static final double[] ABSCISSA_2 = {-0.5773502691896257, 0.5773502691896257};
+    private static final double[] WEIGHTS_3 = {0.5555555555555556, 0.8888888888888888, 0.5555555555555556};
+    private static final double[] ABSCISSA_3 = {-0.7745966692414834, 0.0000000000000000, 0.7745966692414834};
+
+    @Param({"CubicHermite", "QuinticHermite"})
+    public String type;
+
+    /** The first segment of the auto path, or a long segment that turns back on itself. */
+    @Param({"auto", "uturn"})
+    public String path;
+
+    /** Absolute and relative tolerance of the quadrature. */
+    @Param({"1e-3", "1e-6", "1e-9"})
+    public double tolerance;
+
+    private Segment segment;
+    private Quadrature quadrature;
+    /** Points of the fixed rule the segment used to have. */
+    private int fixedPoints;
+
+    @Setup
+    public void setup() {
+        Segment.SegmentFactory factory;
+        if (type.equals("QuinticHermite")) {
+            factory = new QuinticHermiteSegment.QuinticHermiteSegmentFactory();
+            fixedPoints = 3;
+        } else {
+            factory = new CubicHermiteSegment.CubicHermiteSegmentFactory();
+            fixedPoints = 2;
+        }
+        Waypoint[] waypoints = path.equals("uturn")
+                ? new Waypoint[] {new Waypoint(0, 0, 0), new Waypoint(0, 20, Math.PI)}
+                : BenchmarkPaths.auto();
+        segment = factory.getInstance(BenchmarkPaths.TIGHTNESS, waypoints[0], waypoints[1]);
+        quadrature = new Quadrature(tolerance, tolerance);
+
+        double reference = segment.split(new Quadrature(1e-15, 1e-15)).length();
+        Segment.Pieces pieces = segment.split(quadrature);
+        System.out.printf("%n%s %s: length %.9f, fixed %d point error %.3e, adaptive error %.3e"
+                        + " with %d pieces and %d evaluations%n",
+                type, path, reference, fixedPoints, Math.abs(fixed() - reference),
+                Math.abs(pieces.length() - reference), pieces.size(), pieces.evaluations);
+    }
+
+    @Benchmark
+    public double adaptive(Evaluations counter) {
+        Segment.Pieces pieces = segment.split(quadrature);
+        counter.evaluations += pieces.evaluations;
+        return pieces.length();
+    }
+
+    @Benchmark
+    public double fixed(Evaluations counter) {
+        counter.evaluations += fixedPoints;
+        return fixed();
+    }
+
+    /**
+     * @return the length from one Gauss-Legendre rule
+     *         of 2 or 3 points over the whole segment.
+     */
+    private double fixed() {
+        double[] weights = fixedPoints == 2 ? WEIGHTS_2 : WEIGHTS_3;
+        double[] abscissa = fixedPoints == 2 ? ABSCISSA_2 : ABSCISSA_3;
+        double sum = 0;
+        for (int i = 0; i < fixedPoints; i++) {
+            sum += weights[i] * segment.speed(0.5 * abscissa[i] + 0.5);
+        }
+        return 0.5 * sum;
+    }
+
+}
@@ -0,0 +1,61 @@
+package gen.segments;
+
+import gen.BenchmarkPaths;
+import gen.Waypoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SegmentBenchmark.java
+ *
+ * Time it takes to find the arc length of each kind of segment
+ * and to evaluate a single point on it.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentBenchmark {
+
+    @Param({"CubicBezier", "CubicHermite", "QuinticBezier", "QuinticHermite"})
+    public String type;
+
+    private Segment segment;
+    private SegmentState state;
+    private double to;
+
+    @Setup
+    public void setup() {
+        Segment.SegmentFactory factory;
+        switch (type) {
+            case "CubicBezier":   factory = new CubicBezierSegment.CubicBezierSegmentFactory(); break;
+            case "QuinticBezier": factory = new QuinticBezierSegment.QuinticBezierSegmentFactory(); break;
+            case "QuinticHermite":factory = new QuinticHermiteSegment.QuinticHermiteSegmentFactory(); break;
+            default:              factory = new CubicHermiteSegment.CubicHermiteSegmentFactory(); break;
+        }
+        Waypoint[] path = BenchmarkPaths.auto();
+        segment = factory.getInstance(BenchmarkPaths.TIGHTNESS, path[0], path[1]);
+        state = new SegmentState();
+        to = 0;
+    }
+
+    @Benchmark
+    public double integrate() {
+        to += 0.000123;
+        if (to > 1) to -= 1;
+        return segment.integrate(0, to);
+    }
+
+    @Benchmark
+    public SegmentState evaluate() {
+        to += 0.000123;
+        if (to > 1) to -= 1;
+        segment.evaluate(to, state);
+        return state;
+    }
+
+}
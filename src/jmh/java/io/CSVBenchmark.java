@@ -0,0 +1,64 @@
+package io;
+
+import gen.BenchmarkPaths;
+import gen.Trajectory;
+import gen.TrajectoryBuffer;
+import gen.Waypoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSVBenchmark.java
+ *
+ * Time it takes to write a trajectory to a csv file.
+ * The smallest dt gives about 100k rows.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSVBenchmark {
+
+    @Param({"0.00006", "0.01", "0.05"})
+    public double dt;
+
+    private TrajectoryBuffer traj;
+    private ArrayList<Waypoint> points;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        traj = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.MEDIUM.getRate(),
+                BenchmarkPaths.TIGHTNESS, dt, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, BenchmarkPaths.auto()).getBuffer();
+        points = traj.toWaypoints();
+        file = File.createTempFile("bench", ".csv");
+        file.deleteOnExit();
+    }
+
+    @Benchmark
+    public File exportCSV() {
+        CSV.exportCSV(file, points);
+        return file;
+    }
+
+    @Benchmark
+    public File exportColumns() {
+        CSV.exportCSV(file, traj, CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+        return file;
+    }
+
+    @Benchmark
+    public File exportFixed() {
+        CSV.exportCSV(file, traj, 4, CSVExporter.DEFAULT_COLUMNS);
+        return file;
+    }
+
+}
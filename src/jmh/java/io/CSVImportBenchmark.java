@@ -0,0 +1,84 @@
+package io;
+
+import gen.BenchmarkPaths;
+import gen.Trajectory;
+import gen.TrajectoryBuffer;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSVImportBenchmark.java
+ *
+ * Import throughput of a csv file with about 100k rows. The
+ * "megabytes" counter is the throughput in MB/s, the rest of
+ * the scores are files per second.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVImportBenchmark {
+
+    /** Counts the size of every file read, reported per second. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public double megabytes;
+    }
+
+    /** Digits after the decimal point, -1 for the shortest round trip. */
+    @Param({"-1", "4"})
+    public int precision;
+
+    private File file;
+    private double megabytes;
+
+    @Setup
+    public void setup() throws IOException {
+        TrajectoryBuffer traj = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.MEDIUM.getRate(),
+                BenchmarkPaths.TIGHTNESS, 0.00006, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, BenchmarkPaths.auto()).getBuffer();
+        file = File.createTempFile("bench", ".csv");
+        file.deleteOnExit();
+        CSV.exportCSV(file, traj, precision, CSVExporter.DEFAULT_COLUMNS);
+        megabytes = file.length() / 1e6;
+    }
+
+    /** Every record through commons-csv, the way importCSV used to read files. */
+    @Benchmark
+    public double commonsCSV(Bytes bytes) throws IOException {
+        double sum = 0;
+        try (CSVParser parser = CSVParser.parse(file, StandardCharsets.UTF_8, CSVFormat.DEFAULT.withFirstRecordAsHeader())) {
+            for (CSVRecord record : parser) {
+                for (String value : record) sum += Double.parseDouble(value);
+            }
+        }
+        bytes.megabytes += megabytes;
+        return sum;
+    }
+
+    @Benchmark
+    public TrajectoryBuffer allColumns(Bytes bytes) throws IOException {
+        bytes.megabytes += megabytes;
+        return CSVImporter.read(file, CSVExporter.DEFAULT_COLUMNS);
+    }
+
+    /** The columns DistanceFollower needs from a file. */
+    @Benchmark
+    public TrajectoryBuffer followerColumns(Bytes bytes) throws IOException {
+        bytes.megabytes += megabytes;
+        return CSVImporter.read(file, CSVExporter.Column.TIME, CSVExporter.Column.DISTANCE,
+                CSVExporter.Column.VELOCITY, CSVExporter.Column.ACCELERATION, CSVExporter.Column.HEADING);
+    }
+
+}
@@ -0,0 +1,83 @@
+package io;
+
+import gen.BenchmarkPaths;
+import gen.Trajectory;
+import gen.TrajectoryBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompactBenchmark.java
+ *
+ * Writing and reading a compact trajectory of about 100k points in memory,
+ * in files per second. The "points" counter is points per second. The size
+ * of the compact file next to the csv and binary files, and the largest
+ * error of each column, are printed once per fork.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactBenchmark {
+
+    /** Counts the points written or read, reported per second. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Points {
+        public long points;
+    }
+
+    private TrajectoryBuffer traj;
+    private double dt;
+    private byte[] compact;
+    private ByteArrayOutputStream out;
+
+    @Setup
+    public void setup() throws IOException {
+        dt = 0.00006;
+        traj = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.MEDIUM.getRate(),
+                BenchmarkPaths.TIGHTNESS, dt, BenchmarkPaths.VELOCITY, BenchmarkPaths.ACCELERATION,
+                BenchmarkPaths.JERK, BenchmarkPaths.auto()).getBuffer();
+        out = new ByteArrayOutputStream();
+        double[] errors = Compact.write(out, traj, dt, Compact.DEFAULT_ENCODINGS);
+        compact = out.toByteArray();
+
+        File csv = File.createTempFile("bench", ".csv");
+        File bin = File.createTempFile("bench", ".bin");
+        csv.deleteOnExit();
+        bin.deleteOnExit();
+        CSV.exportCSV(csv, traj, CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+        Binary.exportBinary(bin, traj, dt);
+        System.out.printf("%n%d points: compact %d bytes (%.1f a point), csv %d bytes (%.1fx), binary %d bytes (%.1fx)%n",
+                traj.size(), compact.length, (double) compact.length / traj.size(),
+                csv.length(), (double) csv.length() / compact.length, bin.length(), (double) bin.length() / compact.length);
+        for (int c = 0; c < errors.length; c++) {
+            System.out.printf("  %-14s largest error %.3e%n", Compact.DEFAULT_ENCODINGS[c].column.getHeader(), errors[c]);
+        }
+    }
+
+    @Benchmark
+    public int write(Points points) throws IOException {
+        out.reset();
+        Compact.write(out, traj, dt, Compact.DEFAULT_ENCODINGS);
+        points.points += traj.size();
+        return out.size();
+    }
+
+    @Benchmark
+    public TrajectoryBuffer read(Points points) throws IOException {
+        points.points += traj.size();
+        try (CompactReader reader = new CompactReader(new ByteArrayInputStream(compact))) {
+            return reader.read();
+        }
+    }
+
+}
@@ -1,18 +1,92 @@
 package followers;
 import io.CSV;
+import io.CSVExporter;
+import io.MappedTrajectory;
+import gen.TrajectoryBuffer;
+import gen.TrajectoryView;
 import gen.Waypoint;
 
 import java.io.*;
+import java.nio.DoubleBuffer;
 
 public class DistanceFollower {
+    /** Points checked one at a time when searching forward, a binary search is used past them. */
+    private static final int WINDOW = 8;
+
     private double kp, ki, kd, kv, ka;
     private double previousError, heading;
+    /** Elapsed time of the last updateByTime call, NaN before the first one. */
+    private double previousTime = Double.NaN;
     private int currentPoint;
-    private Waypoint[] targetPoints;
+    /** Columns of the target points, index i of each column belongs to point i. */
+    private DoubleBuffer time, x, y, distance, velocity, acceleration, headings;
+    private int size;
     private double dt;
 
     public DistanceFollower(File csvData) {
-        targetPoints = CSV.importCSV(csvData);
+        this(CSV.importColumns(csvData, CSVExporter.Column.TIME, CSVExporter.Column.X, CSVExporter.Column.Y,
+                CSVExporter.Column.DISTANCE, CSVExporter.Column.VELOCITY, CSVExporter.Column.ACCELERATION,
+                CSVExporter.Column.HEADING));
+    }
+
+    /**
+     * Follows a trajectory in column form, the columns are used without being copied.
+     * @param traj trajectory to follow.
+     */
+    public DistanceFollower(TrajectoryBuffer traj) {
+        size = traj.size();
+        time = DoubleBuffer.wrap(traj.time);
+        x = DoubleBuffer.wrap(traj.x);
+        y = DoubleBuffer.wrap(traj.y);
+        distance = DoubleBuffer.wrap(traj.distanceFromStart);
+        velocity = DoubleBuffer.wrap(traj.velocity);
+        acceleration = DoubleBuffer.wrap(traj.acceleration);
+        headings = DoubleBuffer.wrap(traj.heading);
+        dt = size > 1 ? time.get(1) - time.get(0) : 0;
+    }
+
+    /**
+     * Follows a read-only view of a trajectory, such as a side of a TankModifier.
+     * @param traj trajectory to follow.
+     */
+    public DistanceFollower(TrajectoryView traj) {
+        size = traj.size();
+        time = traj.time.duplicate();
+        x = traj.x.duplicate();
+        y = traj.y.duplicate();
+        distance = traj.distanceFromStart.duplicate();
+        velocity = traj.velocity.duplicate();
+        acceleration = traj.acceleration.duplicate();
+        headings = traj.heading.duplicate();
+        dt = size > 1 ? time.get(1) - time.get(0) : 0;
+    }
+
+    /**
+     * Follows a trajectory straight out of a memory mapped binary file.
+     * @param traj trajectory read by Binary.importBinary.
+     * @throws IllegalArgumentException if the file is missing a column the follower needs.
+     */
+    public DistanceFollower(MappedTrajectory traj) {
+        size = traj.size();
+        time = column(traj, "time");
+        x = column(traj, "x");
+        y = column(traj, "y");
+        distance = column(traj, "distanceFromStart");
+        velocity = column(traj, "velocity");
+        acceleration = column(traj, "acceleration");
+        headings = column(traj, "heading");
+        dt = size > 1 ? time.get(1) - time.get(0) : 0;
+    }
+
+    /**
+     * @param traj the mapped trajectory.
+     * @param name name of the column.
+     * @return the column.
+     */
+    private static DoubleBuffer column(MappedTrajectory traj, String name) {
+        DoubleBuffer column = traj.getColumn(name);
+        if (column == null) throw new IllegalArgumentException("Trajectory file has no " + name + " column");
+        return column;
     }
 
     public void configurePIDVA(double kp, double ki, double kd, double kv, double ka) {
@@ -20,35 +94,112 @@ public class DistanceFollower {
         this.kv = kv; this.ka = ka;
     }
 
-    private void reset() {
+    public void reset() {
         previousError = 0;
+        previousTime = Double.NaN;
         currentPoint = 0;
     }
 
     public double update(double distanceCovered) {
-        dt = targetPoints[1].time;
-        if(targetPoints.length > currentPoint) {
-            Waypoint point = getWaypoint();
-            double distanceError = point.distanceFromStart - distanceCovered;
-            double calculated_value =
-                    kp * distanceError + kd * ((distanceError - previousError) / dt) +
-                            (kv * point.velocity + ka * point.acceleration);
-            previousError = distanceError;
+        if(size > currentPoint) {
+            double calculated_value = follow(distanceCovered, dt);
             currentPoint++;
             return calculated_value;
         } else return 0;
     }
 
+    /**
+     * Follows the point the robot should be at by now, so the follower
+     * stays in sync with the profile when updates are late or skipped.
+     * @param elapsedTime time since the robot started following.
+     * @param distanceCovered distance the robot went since it started.
+     * @return output for the motor.
+     */
+    public double updateByTime(double elapsedTime, double distanceCovered) {
+        if (isFinished()) return 0;
+        if (elapsedTime > time.get(size - 1)) {
+            currentPoint = size;
+            return 0;
+        }
+        currentPoint = search(time, elapsedTime);
+        double step = Double.isNaN(previousTime) || elapsedTime <= previousTime ? dt : elapsedTime - previousTime;
+        previousTime = elapsedTime;
+        return follow(distanceCovered, step);
+    }
+
+    /**
+     * Follows the point at the distance the robot has covered, the
+     * robot is driven by the velocity and acceleration planned for
+     * where it is instead of where it should be.
+     * @param distanceCovered distance the robot went since it started.
+     * @return output for the motor.
+     */
+    public double updateByDistance(double distanceCovered) {
+        if (isFinished()) return 0;
+        if (distanceCovered > distance.get(size - 1)) {
+            currentPoint = size;
+            return 0;
+        }
+        currentPoint = search(distance, distanceCovered);
+        return follow(distanceCovered, dt);
+    }
+
+    /**
+     * @param distanceCovered distance the robot went since it started.
+     * @param step time since the last update.
+     * @return output for the motor to follow the current point.
+     */
+    private double follow(double distanceCovered, double step) {
+        double distanceError = distance.get(currentPoint) - distanceCovered;
+        double calculated_value =
+                kp * distanceError + kd * ((distanceError - previousError) / step) +
+                        (kv * velocity.get(currentPoint) + ka * acceleration.get(currentPoint));
+        previousError = distanceError;
+        return calculated_value;
+    }
+
+    /**
+     * Only searches forward from the current point, the robot never goes back in the profile.
+     * @param column a column that never decreases (time or distance).
+     * @param value value to look for.
+     * @return the last point at or after the current one whose value is not past the value.
+     */
+    private int search(DoubleBuffer column, double value) {
+        int i = currentPoint;
+        int window = Math.min(i + WINDOW, size - 1);
+        while (i < window && column.get(i + 1) <= value) i++;
+        if (i == window && i < size - 1 && column.get(i + 1) <= value) {
+            // far behind, the value is somewhere in (window, size - 1]
+            int lo = i + 1, hi = size - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (column.get(mid) <= value) lo = mid;
+                else hi = mid - 1;
+            }
+            i = lo;
+        }
+        return i;
+    }
+
     public double getHeading() {
-        return targetPoints[currentPoint].heading;
+        return headings.get(Math.min(currentPoint, size - 1));
     }
 
+    /**
+     * @return the point being followed, the last point once the follower is finished.
+     */
     public Waypoint getWaypoint() {
-        return targetPoints[currentPoint];
+        int i = Math.min(currentPoint, size - 1);
+        Waypoint point = new Waypoint(x.get(i), y.get(i), headings.get(i));
+        point.time = time.get(i);
+        point.distanceFromStart = distance.get(i);
+        point.velocity = velocity.get(i);
+        point.acceleration = acceleration.get(i);
+        return point;
     }
 
     public boolean isFinished() {
-        return currentPoint >= targetPoints.length;
+        return currentPoint >= size;
     }
 
 }
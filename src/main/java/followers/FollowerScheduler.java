@@ -0,0 +1,166 @@
+package followers;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * FollowerScheduler.java
+ *
+ * Runs a left and a right follower together at a fixed period on their
+ * own high priority thread. Deadlines are kept on a fixed grid from the
+ * start time, so time lost to a late wake up is not carried into the
+ * next period. When an update takes longer than a period the missed
+ * periods are skipped and counted as overruns; the followers search by
+ * elapsed time, so they stay in sync with the profile anyway.
+ */
+
+public class FollowerScheduler {
+
+    /** Where the scheduler reads distances from and writes outputs to. */
+    public interface TankDrive {
+
+        /**
+         * @return distance the left side went since following started.
+         */
+        double getLeftDistance();
+
+        /**
+         * @return distance the right side went since following started.
+         */
+        double getRightDistance();
+
+        /**
+         * @param left output for the left side.
+         * @param right output for the right side.
+         */
+        void set(double left, double right);
+
+    }
+
+    private final DistanceFollower left, right;
+    private final TankDrive drive;
+    /** Time between updates in nanoseconds. */
+    private final long period;
+
+    /** Time between the starts of two updates. */
+    private final Histogram periods = new Histogram();
+    /** Time spent reading the drive, updating the followers and writing the outputs. */
+    private final Histogram executionTimes = new Histogram();
+    /** Periods that were skipped because an update ran past them. */
+    private volatile long overruns;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param left follower of the left side.
+     * @param right follower of the right side.
+     * @param drive where distances are read from and outputs written to.
+     * @param period time between updates in seconds, usually the dt of the trajectories.
+     */
+    public FollowerScheduler(DistanceFollower left, DistanceFollower right, TankDrive drive, double period) {
+        if (period <= 0) throw new IllegalArgumentException("Period must be positive");
+        this.left = left;
+        this.right = right;
+        this.drive = drive;
+        this.period = (long) (period * 1e9);
+    }
+
+    /**
+     * Starts following on a new thread, the followers are reset first.
+     */
+    public synchronized void start() {
+        if (running) throw new IllegalStateException("Already running");
+        left.reset();
+        right.reset();
+        periods.clear();
+        executionTimes.clear();
+        overruns = 0;
+        running = true;
+        thread = new Thread(this::loop, "follower-scheduler");
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops following and sets both outputs to 0.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread t = thread;
+        if (t != null) {
+            LockSupport.unpark(t);
+            t.join();
+        }
+    }
+
+    /**
+     * Waits until both followers are finished or the scheduler is stopped.
+     */
+    public void join() throws InterruptedException {
+        Thread t = thread;
+        if (t != null) t.join();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Histogram getPeriods() {
+        return periods;
+    }
+
+    public Histogram getExecutionTimes() {
+        return executionTimes;
+    }
+
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * @return the period and execution time percentiles and the amount of overruns.
+     */
+    public String report() {
+        return "period: " + periods + "\n" +
+               "execution: " + executionTimes + "\n" +
+               "overruns: " + overruns + " (deadline " + period / 1e3 + "us)";
+    }
+
+    private void loop() {
+        long start = System.nanoTime();
+        long deadline = start;
+        long previous = -1;
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                if (previous >= 0) periods.record(now - previous);
+                previous = now;
+
+                double elapsed = (now - start) / 1e9;
+                double l = left.updateByTime(elapsed, drive.getLeftDistance());
+                double r = right.updateByTime(elapsed, drive.getRightDistance());
+                drive.set(l, r);
+                long done = System.nanoTime();
+                executionTimes.record(done - now);
+                if (left.isFinished() && right.isFinished()) break;
+
+                deadline += period;
+                if (done >= deadline) {
+                    // ran past one or more deadlines, skip to the next one still ahead
+                    long missed = (done - deadline) / period + 1;
+                    overruns += missed;
+                    deadline += missed * period;
+                }
+                long wait;
+                while (running && (wait = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        } finally {
+            drive.set(0, 0);
+            running = false;
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package followers;
+
+import java.util.Arrays;
+
+/**
+ * Histogram.java
+ *
+ * Counts durations in nanoseconds into buckets that are about 1.5% wide,
+ * so percentiles can be read without keeping every value. Recording
+ * does not allocate, which keeps it safe to use inside a control loop.
+ */
+
+public class Histogram {
+
+    /** Each power of two is split into 2^SUB_BITS buckets. */
+    private static final int SUB_BITS = 6;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /** Enough buckets for every positive long. */
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count, sum, max;
+
+    /**
+     * @param nanos duration to add, negative durations count as 0.
+     */
+    public synchronized void record(long nanos) {
+        long v = Math.max(nanos, 0);
+        counts[index(v)]++;
+        count++;
+        sum += v;
+        max = Math.max(max, v);
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(counts, 0);
+        count = sum = max = 0;
+    }
+
+    /**
+     * @return amount of recorded durations.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the longest recorded duration in nanoseconds.
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the average duration in nanoseconds, 0 if nothing was recorded.
+     */
+    public synchronized double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @return the duration that percentile of the recorded durations are at or
+     *         under, rounded up to the end of its bucket. 0 if nothing was recorded.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(highest(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * @return p50, p99 and max in microseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("p50 %.1fus, p99 %.1fus, max %.1fus (%d samples)",
+                getPercentile(50) / 1e3, getPercentile(99) / 1e3, getMax() / 1e3, getCount());
+    }
+
+    /**
+     * @param v a duration that is not negative.
+     * @return the bucket it is counted in.
+     */
+    private static int index(long v) {
+        if (v < SUB_COUNT) return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        int shift = msb - SUB_BITS;
+        int sub = (int) (v >>> shift) & (SUB_COUNT - 1);
+        return SUB_COUNT + shift * SUB_COUNT + sub;
+    }
+
+    /**
+     * @param index a bucket.
+     * @return the largest duration counted in it.
+     */
+    private static long highest(int index) {
+        if (index < SUB_COUNT) return index;
+        int shift = (index - SUB_COUNT) / SUB_COUNT;
+        int sub = (index - SUB_COUNT) % SUB_COUNT;
+        return ((long) (SUB_COUNT + sub + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,59 @@
+package followers;
+
+/**
+ * SimulatedTankDrive.java
+ *
+ * A tank drive without hardware for trying out followers and the
+ * scheduler. Each side moves at its last output times the top speed
+ * for however long that output was set, so late updates make the
+ * simulated robot lag the way a real one would.
+ */
+
+public class SimulatedTankDrive implements FollowerScheduler.TankDrive {
+
+    /** Speed of a side when its output is 1. */
+    private final double maxVelocity;
+    private double leftDistance, rightDistance;
+    private double leftOutput, rightOutput;
+    /** When the outputs were last set, -1 before the first time. */
+    private long lastSet = -1;
+
+    /**
+     * @param maxVelocity speed of a side when its output is 1,
+     *                    followers should use kv = 1 / maxVelocity.
+     */
+    public SimulatedTankDrive(double maxVelocity) {
+        this.maxVelocity = maxVelocity;
+    }
+
+    @Override
+    public synchronized double getLeftDistance() {
+        move();
+        return leftDistance;
+    }
+
+    @Override
+    public synchronized double getRightDistance() {
+        move();
+        return rightDistance;
+    }
+
+    @Override
+    public synchronized void set(double left, double right) {
+        move();
+        leftOutput = Math.max(-1, Math.min(1, left));
+        rightOutput = Math.max(-1, Math.min(1, right));
+    }
+
+    /** Moves both sides by their outputs for the time since the last move. */
+    private void move() {
+        long now = System.nanoTime();
+        if (lastSet >= 0) {
+            double dt = (now - lastSet) / 1e9;
+            leftDistance += leftOutput * maxVelocity * dt;
+            rightDistance += rightOutput * maxVelocity * dt;
+        }
+        lastSet = now;
+    }
+
+}
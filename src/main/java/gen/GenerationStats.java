@@ -0,0 +1,199 @@
+package gen;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * GenerationStats.java
+ *
+ * Where the time of making a trajectory went, split into stages. Each stage
+ * records its wall time, the points it processed, the spline evaluations and
+ * arc length integrals (quadratures) it did and the bytes allocated by the
+ * thread running it.
+ *
+ * Stats are off unless turned on with setEnabled or by starting the program
+ * with -Dprofiler.stats=true. When off, trajectories and modifiers do not
+ * make stats at all and getStats returns null.
+ */
+
+public class GenerationStats {
+
+    /** Parts of making a trajectory, in the order they run. */
+    public enum Stage {
+
+        /** Building the spline segments and their lengths. */
+        FIT("fit"),
+        /** Sampling the segments and joining the samples. */
+        SAMPLE("sample"),
+        /** Velocities, times, accelerations and jerks of the samples. */
+        CALCULATE("calculate"),
+        /** Finding the points dt apart and calculating them again. */
+        TIME_PARAMETERIZE("time parameterize"),
+        /** Making the trajectories of the drive from the center one. */
+        MODIFY("modify");
+
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("profiler.stats");
+
+    /** Counts allocated bytes per thread, null if the jvm can not. */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocations();
+
+    private final long[] nanos = new long[Stage.values().length];
+    private final long[] points = new long[Stage.values().length];
+    private final long[] evaluations = new long[Stage.values().length];
+    private final long[] quadratures = new long[Stage.values().length];
+    private final long[] bytes = new long[Stage.values().length];
+    private final boolean[] recorded = new boolean[Stage.values().length];
+
+    /** When the current stage began. */
+    private long startNanos, startBytes;
+
+    /**
+     * @param enabled whether trajectories and modifiers made from now on keep stats.
+     */
+    public static void setEnabled(boolean enabled) {
+        GenerationStats.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return new stats if they are enabled, otherwise null.
+     */
+    public static GenerationStats create() {
+        return enabled ? new GenerationStats() : null;
+    }
+
+    private static com.sun.management.ThreadMXBean allocations() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+        try {
+            if (!sun.isThreadAllocatedMemorySupported()) return null;
+            if (!sun.isThreadAllocatedMemoryEnabled()) sun.setThreadAllocatedMemoryEnabled(true);
+            return sun;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, 0 if unknown.
+     */
+    private static long allocated() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Starts timing a stage, call end with the stage when it is done.
+     */
+    public void begin() {
+        startBytes = allocated();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds the time since begin to a stage, running a stage twice adds both runs.
+     * @param stage the stage that was run.
+     * @param points points the stage processed.
+     * @param evaluations spline or segment evaluations done.
+     * @param quadratures arc length integrals done.
+     */
+    public void end(Stage stage, long points, long evaluations, long quadratures) {
+        long now = System.nanoTime();
+        int s = stage.ordinal();
+        this.nanos[s] += now - startNanos;
+        this.bytes[s] += allocated() - startBytes;
+        this.points[s] += points;
+        this.evaluations[s] += evaluations;
+        this.quadratures[s] += quadratures;
+        recorded[s] = true;
+    }
+
+    /**
+     * @return whether the stage ran, stages can be skipped
+     *         (a trajectory loaded from a cache is not sampled).
+     */
+    public boolean hasStage(Stage stage) {
+        return recorded[stage.ordinal()];
+    }
+
+    /**
+     * @return wall time of the stage in nanoseconds.
+     */
+    public long getNanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public long getPoints(Stage stage) {
+        return points[stage.ordinal()];
+    }
+
+    public long getEvaluations(Stage stage) {
+        return evaluations[stage.ordinal()];
+    }
+
+    public long getQuadratures(Stage stage) {
+        return quadratures[stage.ordinal()];
+    }
+
+    /**
+     * @return bytes allocated by the thread that ran the stage, work done on
+     *         other threads (parallel sampling) is not included. 0 when the
+     *         jvm can not count allocations.
+     */
+    public long getAllocatedBytes(Stage stage) {
+        return bytes[stage.ordinal()];
+    }
+
+    /**
+     * @return wall time of every stage together in nanoseconds.
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (long n : nanos) total += n;
+        return total;
+    }
+
+    /**
+     * @return one line per stage that ran with its time, counts and allocations.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-18s %10s %10s %12s %12s %12s%n",
+                "stage", "ms", "points", "evaluations", "quadratures", "allocated"));
+        for (Stage stage : Stage.values()) {
+            if (!hasStage(stage)) continue;
+            sb.append(String.format("%-18s %10.3f %10d %12d %12d %12s%n", stage, getNanos(stage) / 1e6,
+                    getPoints(stage), getEvaluations(stage), getQuadratures(stage), bytes(getAllocatedBytes(stage))));
+        }
+        sb.append(String.format("%-18s %10.3f", "total", getTotalNanos() / 1e6));
+        return sb.toString();
+    }
+
+    /**
+     * @return an amount of bytes in B, KB or MB.
+     */
+    private static String bytes(long b) {
+        if (ALLOCATIONS == null) return "n/a";
+        if (b < 1024) return b + " B";
+        if (b < 1024 * 1024) return String.format("%.1f KB", b / 1024.0);
+        return String.format("%.1f MB", b / (1024.0 * 1024.0));
+    }
+
+}
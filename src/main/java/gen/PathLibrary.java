@@ -0,0 +1,383 @@
+package gen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PathLibrary.java
+ *
+ * Named legs of a path (start to cargo ship, cargo ship to loading station)
+ * that are generated once and then stitched into one trajectory in any order,
+ * so an autonomous routine made of legs that were generated before costs a
+ * copy of their points instead of generating the whole path again.
+ *
+ * Each leg is generated on its own, starting and ending at rest. When legs
+ * are stitched the robot keeps moving through the point they share: the
+ * velocity there is the junction velocity (lowered so both legs can still
+ * reach it), the parts of the legs that speed up from or slow down to rest
+ * at a junction are re-timed with the new velocities, and the rest of each
+ * leg is copied with its time and distance moved to where the leg starts.
+ */
+
+public class PathLibrary {
+
+    /** Largest gap in position (units) or heading (radians) between the end of a leg and the start of the next. */
+    private static final double JOIN_TOLERANCE = 1e-6;
+
+    public final Trajectory.FitMethod method;
+    public final int sampleRate;
+    public final double tightness, dt, maxVelocity, maxAcceleration, maxJerk;
+    /** Where legs are generated through, null to generate them directly. */
+    private final TrajectoryCache cache;
+
+    /** Waypoints of each leg, in the order they were defined. */
+    private final Map<String, Waypoint[]> definitions = new LinkedHashMap<>();
+    /** Legs generated so far. */
+    private final Map<String, Trajectory> legs = new HashMap<>();
+
+    /**
+     * Every leg is generated with the same settings, see the Trajectory constructor.
+     * @param cache where legs are generated through so they are kept between
+     *              runs, null to generate them directly.
+     */
+    public PathLibrary(Trajectory.FitMethod method, int sampleRate, double tightness, double dt,
+                       double maxVelocity, double maxAcceleration, double maxJerk, TrajectoryCache cache) {
+        this.method = method;
+        this.sampleRate = sampleRate;
+        this.tightness = tightness;
+        this.dt = dt;
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxJerk = maxJerk;
+        this.cache = cache;
+    }
+
+    /**
+     * Adds a leg, or replaces the waypoints of one (it is generated again when it is next used).
+     * @param name name of the leg.
+     * @param waypoints points the leg goes through.
+     */
+    public synchronized void define(String name, Waypoint... waypoints) {
+        if (waypoints.length < 2) throw new IllegalArgumentException("Not enough points for leg " + name);
+        definitions.put(name, waypoints.clone());
+        legs.remove(name);
+    }
+
+    /**
+     * @return names of the legs in the order they were defined.
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<>(definitions.keySet());
+    }
+
+    /**
+     * @param name name of the leg.
+     * @return the leg, generated the first time it is asked for.
+     */
+    public synchronized Trajectory getLeg(String name) {
+        Trajectory leg = legs.get(name);
+        if (leg == null) {
+            Waypoint[] waypoints = definitions.get(name);
+            if (waypoints == null) throw new IllegalArgumentException("Unknown leg " + name);
+            leg = cache != null ?
+                    cache.get(method, sampleRate, tightness, dt, maxVelocity, maxAcceleration, maxJerk, waypoints) :
+                    new Trajectory(method, sampleRate, tightness, dt, maxVelocity, maxAcceleration, maxJerk, waypoints);
+            legs.put(name, leg);
+        }
+        return leg;
+    }
+
+    /**
+     * Generates every leg that was not generated yet, so stitching never has to.
+     */
+    public void precompute() {
+        for (String name : getNames()) getLeg(name);
+    }
+
+    /**
+     * Stitches legs going through their junctions at maxVelocity where they can.
+     * @param names legs in the order they are driven, each one starting where the last one ends.
+     * @return the trajectory of the whole routine.
+     */
+    public TrajectoryBuffer stitch(String... names) {
+        return stitch(maxVelocity, names);
+    }
+
+    /**
+     * @param junctionVelocity velocity at each junction, lowered where a
+     *                         leg is too short to reach it. 0 stops at every junction.
+     * @param names legs in the order they are driven, each one starting where the last one ends.
+     * @return the trajectory of the whole routine.
+     */
+    public TrajectoryBuffer stitch(double junctionVelocity, String... names) {
+        TrajectoryBuffer into = new TrajectoryBuffer(0);
+        stitch(into, junctionVelocity, names);
+        return into;
+    }
+
+    /**
+     * Stitches into a buffer that is reused, without making anything per point.
+     * @param into where the points are written, its points are replaced.
+     * @param junctionVelocity velocity at each junction, lowered where a
+     *                         leg is too short to reach it. 0 stops at every junction.
+     * @param names legs in the order they are driven, each one starting where the last one ends.
+     */
+    public void stitch(TrajectoryBuffer into, double junctionVelocity, String... names) {
+        if (names.length == 0) throw new IllegalArgumentException("No legs to stitch");
+        Trajectory[] route = new Trajectory[names.length];
+        Waypoint[][] waypoints = new Waypoint[names.length][];
+        synchronized (this) {
+            for (int k = 0; k < names.length; k++) {
+                route[k] = getLeg(names[k]);
+                waypoints[k] = definitions.get(names[k]);
+            }
+        }
+        for (int k = 1; k < names.length; k++) {
+            Waypoint end = waypoints[k - 1][waypoints[k - 1].length - 1], start = waypoints[k][0];
+            if (end.distanceTo(start) > JOIN_TOLERANCE ||
+                    Math.abs(angleBetween(end.heading, start.heading)) > JOIN_TOLERANCE) {
+                throw new IllegalArgumentException("Leg " + names[k - 1] + " does not end where " + names[k] + " starts");
+            }
+        }
+        new Stitcher(route, junctionVelocity, into).run();
+    }
+
+    /**
+     * Stitches one routine: walks the points of every leg, copying the ones
+     * whose velocity does not change and collecting the rest into windows
+     * that are re-timed when the next copied point (or the end) is reached.
+     */
+    private final class Stitcher {
+
+        private final Trajectory[] route;
+        private final TrajectoryBuffer out;
+        /** Length of each leg, distance from the start of the routine to
+         *  the start of each leg, and the velocity at the start of each leg. */
+        private final double[] lengths, offsets, velocities;
+        private final double total;
+
+        /** Points of the current window as leg and index, with their
+         *  distance from the start of the routine, velocity and time. */
+        private int[] windowLeg = new int[64], windowIndex = new int[64];
+        private double[] windowDistance = new double[64], windowVelocity = new double[64], windowTime = new double[64];
+        private int windowSize;
+
+        private Stitcher(Trajectory[] route, double junctionVelocity, TrajectoryBuffer out) {
+            this.route = route;
+            this.out = out;
+            int n = route.length;
+            lengths = new double[n];
+            offsets = new double[n + 1];
+            for (int k = 0; k < n; k++) {
+                lengths[k] = route[k].spline.getLength();
+                offsets[k + 1] = offsets[k] + lengths[k];
+            }
+            total = offsets[n];
+
+            // at rest at both ends, no faster than the next leg can slow down from or the last one can speed up to
+            velocities = new double[n + 1];
+            for (int k = 1; k < n; k++) velocities[k] = Math.max(0, Math.min(junctionVelocity, maxVelocity));
+            for (int k = n - 1; k >= 1; k--) {
+                velocities[k] = Math.min(velocities[k], Math.sqrt(velocities[k + 1] * velocities[k + 1] + 2 * maxAcceleration * lengths[k]));
+            }
+            for (int k = 1; k < n; k++) {
+                velocities[k] = Math.min(velocities[k], Math.sqrt(velocities[k - 1] * velocities[k - 1] + 2 * maxAcceleration * lengths[k - 1]));
+            }
+        }
+
+        private void run() {
+            out.clear();
+            for (int k = 0; k < route.length; k++) {
+                TrajectoryBuffer leg = route[k].getBuffer();
+                int size = leg.size();
+                // points in the middle of the leg that keep their velocity
+                int first = 0, last = size - 1;
+                while (first < size && changed(k, leg, first)) first++;
+                while (last > first && changed(k, leg, last)) last--;
+                if (first == size) {
+                    for (int i = 0; i < size; i++) addToWindow(k, i);
+                    continue;
+                }
+                for (int i = 0; i < first; i++) addToWindow(k, i);
+                // the first kept point closes the window and is where the leg's time is moved to
+                double time = retime(k, first);
+                copy(k, first, last, time - leg.time[first]);
+                addToWindow(k, last);
+                for (int i = last + 1; i < size; i++) addToWindow(k, i);
+            }
+            retime(-1, -1);
+        }
+
+        /**
+         * @return the velocity of a point of a leg when it is part of the routine.
+         */
+        private double velocity(int k, double distanceFromStart, double distanceFromEnd) {
+            double start = velocities[k], end = velocities[k + 1];
+            double accelerate = Math.sqrt(start * start + 2 * maxAcceleration * distanceFromStart);
+            double decelerate = Math.sqrt(end * end + 2 * maxAcceleration * distanceFromEnd);
+            return Math.min(Math.min(accelerate, maxVelocity), decelerate);
+        }
+
+        /**
+         * @return whether a point of a leg has a different velocity in the routine.
+         */
+        private boolean changed(int k, TrajectoryBuffer leg, int i) {
+            return velocity(k, leg.distanceFromStart[i], leg.distanceFromEnd[i]) != leg.velocity[i];
+        }
+
+        private void addToWindow(int k, int i) {
+            if (windowSize == windowLeg.length) {
+                int capacity = windowSize * 2;
+                windowLeg = Arrays.copyOf(windowLeg, capacity);
+                windowIndex = Arrays.copyOf(windowIndex, capacity);
+                windowDistance = Arrays.copyOf(windowDistance, capacity);
+                windowVelocity = Arrays.copyOf(windowVelocity, capacity);
+                windowTime = Arrays.copyOf(windowTime, capacity);
+            }
+            TrajectoryBuffer leg = route[k].getBuffer();
+            windowLeg[windowSize] = k;
+            windowIndex[windowSize] = i;
+            windowDistance[windowSize] = offsets[k] + leg.distanceFromStart[i];
+            windowVelocity[windowSize] = velocity(k, leg.distanceFromStart[i], leg.distanceFromEnd[i]);
+            windowSize++;
+        }
+
+        /**
+         * Places points dt apart through the window, which starts at the last
+         * point written (if there is one) and ends at a point that is copied next.
+         * @param k leg of the point that ends the window, -1 at the end of the routine.
+         * @param i index of the point that ends the window.
+         * @return time of the point that ends the window.
+         */
+        private double retime(int k, int i) {
+            if (k >= 0) addToWindow(k, i);
+            if (windowSize == 0) return 0;
+            // times of the window's points with their new velocities
+            windowTime[0] = out.isEmpty() ? 0 : out.time[out.size() - 1];
+            if (windowSize == 1) {
+                windowSize = 0;
+                return windowTime[0];
+            }
+            for (int w = 1; w < windowSize; w++) {
+                double average = (windowVelocity[w] + windowVelocity[w - 1]) / 2.0;
+                double distance = windowDistance[w] - windowDistance[w - 1];
+                windowTime[w] = windowTime[w - 1] + (average > 0 ? distance / average : dt);
+            }
+            double end = windowTime[windowSize - 1];
+            // the first point is already written unless the routine starts with the window
+            int step = out.isEmpty() ? 0 : 1;
+            int w = 0;
+            // stop half a step short of a point that is copied next, so no point lands right before it
+            double last = k >= 0 ? end - dt / 2 : end;
+            for (double t = windowTime[0] + step * dt; t <= last; t = windowTime[0] + ++step * dt) {
+                while (w < windowSize - 2 && windowTime[w + 1] <= t) w++;
+                interpolate(w, t);
+            }
+            // a window too short for any point leaves the last point written right before the next one
+            if (k >= 0 && out.size() > 1 && end - out.time[out.size() - 1] < dt / 2) out.setSize(out.size() - 1);
+            windowSize = 0;
+            return end;
+        }
+
+        /**
+         * Writes a point between two points of the window.
+         * @param w the point of the window before it.
+         * @param t time of the point.
+         */
+        private void interpolate(int w, double t) {
+            int k = windowLeg[w], next = windowLeg[w + 1];
+            TrajectoryBuffer a = route[k].getBuffer(), b = route[next].getBuffer();
+            int i = windowIndex[w], j = windowIndex[w + 1];
+            double span = windowTime[w + 1] - windowTime[w];
+            double f = span > 0 ? Math.min(1, (t - windowTime[w]) / span) : 0;
+            int p = out.add();
+            out.time[p]              = t;
+            out.x[p]                 = lerp(a.x[i], b.x[j], f);
+            out.y[p]                 = lerp(a.y[i], b.y[j], f);
+            out.heading[p]           = a.heading[i] + f * angleBetween(a.heading[i], b.heading[j]);
+            out.curvature[p]         = lerp(a.curvature[i], b.curvature[j], f);
+            out.distanceFromStart[p] = lerp(windowDistance[w], windowDistance[w + 1], f);
+            out.distanceFromEnd[p]   = total - out.distanceFromStart[p];
+            out.velocity[p]          = k == next ?
+                    velocity(k, lerp(a.distanceFromStart[i], b.distanceFromStart[j], f),
+                            lerp(a.distanceFromEnd[i], b.distanceFromEnd[j], f)) :
+                    lerp(windowVelocity[w], windowVelocity[w + 1], f);
+            derive(p);
+        }
+
+        /**
+         * Copies points of a leg that keep their velocity.
+         * @param k the leg.
+         * @param from index of the first point.
+         * @param to index of the last point.
+         * @param shift time added to every point.
+         */
+        private void copy(int k, int from, int to, double shift) {
+            TrajectoryBuffer leg = route[k].getBuffer();
+            int start = out.size();
+            out.setSize(start + to - from + 1);
+            System.arraycopy(leg.x, from, out.x, start, to - from + 1);
+            System.arraycopy(leg.y, from, out.y, start, to - from + 1);
+            System.arraycopy(leg.heading, from, out.heading, start, to - from + 1);
+            System.arraycopy(leg.curvature, from, out.curvature, start, to - from + 1);
+            System.arraycopy(leg.velocity, from, out.velocity, start, to - from + 1);
+            System.arraycopy(leg.acceleration, from, out.acceleration, start, to - from + 1);
+            System.arraycopy(leg.jerk, from, out.jerk, start, to - from + 1);
+            double offset = offsets[k];
+            for (int i = from, p = start; i <= to; i++, p++) {
+                out.time[p] = leg.time[i] + shift;
+                out.distanceFromStart[p] = leg.distanceFromStart[i] + offset;
+                out.distanceFromEnd[p] = total - out.distanceFromStart[p];
+            }
+            // the first points follow a new point, their acceleration and jerk change with it
+            derive(start);
+            if (start + 1 < out.size()) {
+                double step = out.time[start + 1] - out.time[start];
+                out.jerk[start + 1] = bound((out.acceleration[start + 1] - out.acceleration[start]) / step, maxJerk);
+            }
+        }
+
+        /**
+         * Finds the acceleration and jerk of a written point from the one before it.
+         */
+        private void derive(int p) {
+            if (p == 0) {
+                out.acceleration[p] = 0;
+                out.jerk[p] = 0;
+                return;
+            }
+            double step = out.time[p] - out.time[p - 1];
+            if (step <= 0) {
+                out.acceleration[p] = out.acceleration[p - 1];
+                out.jerk[p] = 0;
+                return;
+            }
+            out.acceleration[p] = bound((out.velocity[p] - out.velocity[p - 1]) / step, maxAcceleration);
+            out.jerk[p] = bound((out.acceleration[p] - out.acceleration[p - 1]) / step, maxJerk);
+        }
+
+    }
+
+    private static double lerp(double from, double to, double percent) {
+        return from + (to - from) * percent;
+    }
+
+    private static double bound(double value, double max) {
+        return Math.min(Math.max(value, -max), max);
+    }
+
+    /**
+     * @return the change from one angle to the other between -pi and pi.
+     */
+    private static double angleBetween(double from, double to) {
+        double diff = (to - from) % (2 * Math.PI);
+        if (diff > Math.PI) diff -= 2 * Math.PI;
+        if (diff < -Math.PI) diff += 2 * Math.PI;
+        return diff;
+    }
+
+}
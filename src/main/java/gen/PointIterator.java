@@ -0,0 +1,187 @@
+package gen;
+
+import gen.segments.SegmentState;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PointIterator.java
+ *
+ * Makes the points of a trajectory dt apart one at a time from its samples.
+ * Each point's velocity, time, acceleration and jerk only depend on the
+ * point before it, so nothing but the samples and the last point is kept
+ * and a path of any length takes the same memory to go through.
+ *
+ * next() returns a new waypoint per point, next(Waypoint) and
+ * drainTo(PointSink) reuse one.
+ */
+
+public class PointIterator implements Iterator<Waypoint> {
+
+    private final Trajectory settings;
+    /** The sampled trajectory, with distances, velocities and times of every sample. */
+    private final TrajectoryBuffer samples;
+    /** Progression of each sample on the whole spline, only used when sampled adaptively. */
+    private final double[] alphas;
+    private final double totalTime;
+    private final SegmentState state = new SegmentState();
+
+    /** Time of the next point to look for and the sample to start looking from. */
+    private double time;
+    private int index;
+    /** Amount of points made so far and the last one. */
+    private int count;
+    private double lastDistance, lastVelocity, lastTime, lastAcceleration;
+
+    /** A point made by hasNext that next has not returned yet. */
+    private final Waypoint pending = new Waypoint(0, 0, 0);
+    private boolean hasPending;
+
+    /**
+     * @param settings trajectory with the spline, sample rate, dt and limits to use.
+     * @param samples the sampled trajectory, with velocities and times.
+     * @param alphas progression of each sample on the whole spline [0, 1].
+     */
+    PointIterator(Trajectory settings, TrajectoryBuffer samples, double[] alphas) {
+        this.settings = settings;
+        this.samples = samples;
+        this.alphas = alphas;
+        totalTime = samples.time[samples.size() - 1];
+    }
+
+    /**
+     * @return about how many points are left, exact before the first one is made.
+     */
+    public int estimateSize() {
+        return (int) ((totalTime - time) / settings.dt) + 1 + (hasPending ? 1 : 0);
+    }
+
+    /**
+     * Makes the next point.
+     * @param into where to write it.
+     * @return false if there are no points left, into is not changed then.
+     */
+    public boolean next(Waypoint into) {
+        if (hasPending) {
+            copy(pending, into);
+            hasPending = false;
+            return true;
+        }
+        while (time <= totalTime) {
+            double t = time;
+            time += settings.dt;
+            for (int i = index; i < samples.size() - 1; i++) {
+                // find the pair of samples with times around the target time
+                if (samples.time[i] <= t && samples.time[i + 1] > t) {
+                    index = i;
+                    interpolate(i, t, into);
+                    calculate(into);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Places a point between two samples: its distances are interpolated
+     * with a steady acceleration and its position is found on the spline.
+     * @param i the sample before the point.
+     * @param t time of the point on the sampled trajectory.
+     * @param into where to write the point.
+     */
+    private void interpolate(int i, double t, Waypoint into) {
+        double timeDiff = samples.time[i + 1] - samples.time[i];
+        double timeNeed = t - samples.time[i];
+        // the times of the samples assume a steady acceleration between them, so the
+        // distance covered grows with the square of the time instead of with the time
+        double v0 = samples.velocity[i], v1 = samples.velocity[i + 1];
+        double percentNeed = timeNeed * (v0 + (v1 - v0) * timeNeed / (2 * timeDiff)) / (timeDiff * (v0 + v1) / 2);
+        double percentage = settings.tolerances != null ?
+                alphas[i] + percentNeed * (alphas[i + 1] - alphas[i]) :
+                (i + percentNeed) / (settings.sampleRate * settings.spline.size());
+
+        settings.spline.evaluate(percentage, state);
+        into.x = state.x;
+        into.y = state.y;
+        into.heading = state.heading;
+        into.curvature = state.curvature;
+        into.distanceFromStart = lerp(samples.distanceFromStart[i], samples.distanceFromStart[i + 1], percentNeed);
+        into.distanceFromEnd = lerp(samples.distanceFromEnd[i], samples.distanceFromEnd[i + 1], percentNeed);
+    }
+
+    /**
+     * Finds the velocity (trapezoidal, with maxVelocity as cruise velocity),
+     * time, acceleration and jerk of a point from its distances and the last point.
+     * @param point the point, with its distances set.
+     */
+    private void calculate(Waypoint point) {
+        double accelerate = Math.sqrt(2 * settings.maxAcceleration * point.distanceFromStart);
+        double cruise = settings.maxVelocity;
+        double decelerate = Math.sqrt(2 * settings.maxAcceleration * point.distanceFromEnd);
+        point.velocity = Math.min(Math.min(accelerate, cruise), decelerate);
+
+        if (count == 0) {
+            point.time = 0;
+            point.acceleration = 0;
+            point.jerk = 0;
+        } else {
+            double dd = point.distanceFromStart - lastDistance;
+            double dv = (point.velocity + lastVelocity) / 2.0;
+            point.time = lastTime + dd / dv;
+            double dt = point.time - lastTime;
+            point.acceleration = bound((point.velocity - lastVelocity) / dt, settings.maxAcceleration, -settings.maxAcceleration);
+            point.jerk = bound((point.acceleration - lastAcceleration) / dt, settings.maxJerk, -settings.maxJerk);
+        }
+        count++;
+        lastDistance = point.distanceFromStart;
+        lastVelocity = point.velocity;
+        lastTime = point.time;
+        lastAcceleration = point.acceleration;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!hasPending) hasPending = next(pending);
+        return hasPending;
+    }
+
+    @Override
+    public Waypoint next() {
+        Waypoint point = new Waypoint(0, 0, 0);
+        if (!next(point)) throw new NoSuchElementException();
+        return point;
+    }
+
+    /**
+     * Gives every point left to a sink, reusing one waypoint for all of them.
+     * @param sink where the points go.
+     */
+    public void drainTo(PointSink sink) {
+        Waypoint point = new Waypoint(0, 0, 0);
+        while (next(point)) sink.accept(point);
+    }
+
+    private static void copy(Waypoint from, Waypoint to) {
+        to.x                 = from.x;
+        to.y                 = from.y;
+        to.heading           = from.heading;
+        to.curvature         = from.curvature;
+        to.distanceFromStart = from.distanceFromStart;
+        to.distanceFromEnd   = from.distanceFromEnd;
+        to.velocity          = from.velocity;
+        to.time              = from.time;
+        to.acceleration      = from.acceleration;
+        to.jerk              = from.jerk;
+    }
+
+    private static double lerp(double from, double to, double percent) {
+        return from + (to - from) * percent;
+    }
+
+    private static double bound(double value, double max, double min) {
+        return Math.min(Math.max(value, min), max);
+    }
+
+}
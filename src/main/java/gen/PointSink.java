@@ -0,0 +1,19 @@
+package gen;
+
+/**
+ * PointSink.java
+ *
+ * Takes the points of a trajectory one at a time, in order, so they can be
+ * written or modified as they are made without keeping the whole trajectory.
+ */
+
+@FunctionalInterface
+public interface PointSink {
+
+    /**
+     * @param point the next point. It may be reused for the point after,
+     *              so copy it to keep it past the call.
+     */
+    void accept(Waypoint point);
+
+}
@@ -1,6 +1,11 @@
 package gen;
 import gen.segments.Segment;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import gen.segments.Segment.SegmentFactory;
+import gen.segments.SegmentState;
 
 /**
  * Spline.java
@@ -35,10 +40,21 @@ public class Spline {
 
     /** The segments of a spline. */
     private final Segment[] segments;
+    /** The points the curve goes through, segment i goes from point i to point i + 1. */
+    private final Waypoint[] waypoints;
+    /** The segment generator, kept to rebuild segments when a waypoint changes. */
+    private final SegmentFactory segFact;
+    /** Arc length of each segment. */
+    private final double[] lengths;
+    /** Arc length from the start of the spline to the start of
+     *  each segment, the last entry is the length of the spline. */
+    private final double[] arcLengths;
     /** A multiplier that controls how close the
      *  control points are to the start/end of
      *  the individual curve. */
     public final double tightness;
+    /** Segments built (and integrated) for this spline instead of being reused. */
+    final int built;
 
     /**
      * @param tightness A multiplier that controls how close the
@@ -48,23 +64,133 @@ public class Spline {
      * @param waypoints points that you want your curve to be on.
      */
     public Spline(double tightness, SegmentFactory segFact, Waypoint... waypoints) {
+        this(tightness, segFact, waypoints, null);
+    }
+
+    /**
+     * @param tightness A multiplier that controls how close the
+     *                  control points are to the start/end of
+     *                  the individual curve.
+     * @param segFact the segment generator.
+     * @param waypoints points that you want your curve to be on.
+     * @param previous a spline made with the same tightness and generator
+     *                 whose segments (and their lengths) are reused when they
+     *                 connect the same two points, null to build every segment.
+     */
+    private Spline(double tightness, SegmentFactory segFact, Waypoint[] waypoints, Spline previous) {
         if(waypoints.length < 2) throw new IllegalArgumentException("Not enough points for a spline");
         this.tightness = tightness;
+        this.segFact = segFact;
+        this.waypoints = waypoints.clone();
+        Map<List<Double>, Integer> reusable = new HashMap<>();
+        if (previous != null) {
+            for (int i = 0; i < previous.segments.length; i++) {
+                reusable.put(key(previous.waypoints[i], previous.waypoints[i+1]), i);
+            }
+        }
         segments = new Segment[waypoints.length - 1];
+        lengths = new double[segments.length];
+        int built = 0;
         for(int i = 0; i < waypoints.length - 1; i++) {
-            segments[i] = segFact.getInstance(tightness, waypoints[i], waypoints[i+1]);
+            Integer old = reusable.get(key(waypoints[i], waypoints[i+1]));
+            if (old != null) {
+                segments[i] = previous.segments[old];
+                lengths[i] = previous.lengths[old];
+            } else {
+                segments[i] = segFact.getInstance(tightness, waypoints[i], waypoints[i+1]);
+                lengths[i] = segments[i].length();
+                built++;
+            }
+        }
+        this.built = built;
+        arcLengths = new double[segments.length + 1];
+        for(int i = 0; i < segments.length; i++) {
+            arcLengths[i+1] = arcLengths[i] + lengths[i];
         }
     }
 
+    /**
+     * @param start the starting waypoint of a segment.
+     * @param end the ending waypoint of a segment.
+     * @return the values the segment between the points is made from.
+     */
+    private static List<Double> key(Waypoint start, Waypoint end) {
+        return Arrays.asList(start.x, start.y, start.heading, end.x, end.y, end.heading);
+    }
+
+    /**
+     * Makes a spline through new points with the same tightness and generator.
+     * Segments that connect the same two points as a segment of this spline
+     * are shared instead of being built and integrated again, so moving,
+     * adding or removing one point only rebuilds the segments next to it.
+     * @param waypoints points that you want your curve to be on.
+     * @return the new spline.
+     */
+    public Spline withWaypoints(Waypoint... waypoints) {
+        return new Spline(tightness, segFact, waypoints, this);
+    }
+
+    /**
+     * @param index index of the point to move.
+     * @param wp new position and heading of the point.
+     * @return a spline with the point moved, only the two segments next to it are rebuilt.
+     */
+    public Spline moveWaypoint(int index, Waypoint wp) {
+        Waypoint[] w = waypoints.clone();
+        w[index] = wp;
+        return withWaypoints(w);
+    }
+
+    /**
+     * @param index index the new point will have.
+     * @param wp the point to add.
+     * @return a spline with the point added, only the segments next to it are rebuilt.
+     */
+    public Spline insertWaypoint(int index, Waypoint wp) {
+        Waypoint[] w = new Waypoint[waypoints.length + 1];
+        System.arraycopy(waypoints, 0, w, 0, index);
+        w[index] = wp;
+        System.arraycopy(waypoints, index, w, index + 1, waypoints.length - index);
+        return withWaypoints(w);
+    }
+
+    /**
+     * @param index index of the point to remove.
+     * @return a spline without the point, only the segment replacing it is rebuilt.
+     */
+    public Spline removeWaypoint(int index) {
+        Waypoint[] w = new Waypoint[waypoints.length - 1];
+        System.arraycopy(waypoints, 0, w, 0, index);
+        System.arraycopy(waypoints, index + 1, w, index, waypoints.length - index - 1);
+        return withWaypoints(w);
+    }
+
     /**
      * @param alpha progression on spline [0, 1].
      * @return the segment and alpha of the segment corresponding to the spline alpha.
      */
     private Position findPoint(double alpha) {
+        int s = segmentOf(alpha);
+        return new Position(s, segmentAlpha(alpha, s));
+    }
+
+    /**
+     * @param alpha progression on spline [0, 1].
+     * @return id of the segment the point is on.
+     */
+    private int segmentOf(double alpha) {
         double percent = 1.0 / segments.length;
-        int s = (int) Math.min(Math.max(Math.floor(alpha / percent), 0), segments.length-1);
-        double a = (alpha - s * percent) / percent;
-        return new Position(s, a);
+        return (int) Math.min(Math.max(Math.floor(alpha / percent), 0), segments.length-1);
+    }
+
+    /**
+     * @param alpha progression on spline [0, 1].
+     * @param seg id of the segment the point is on.
+     * @return progression on the segment [0, 1].
+     */
+    private double segmentAlpha(double alpha, int seg) {
+        double percent = 1.0 / segments.length;
+        return (alpha - seg * percent) / percent;
     }
 
     /**
@@ -83,7 +209,7 @@ public class Spline {
     public double getHeading(double alpha) {
         Position pos = findPoint(alpha);
         Vector h = segments[pos.seg].differentiate(pos.alpha);
-        return h.x >= 0 ? Math.atan(h.y / h.x) : Math.PI + Math.atan(h.y / h.x);
+        return Segment.heading(h.x, h.y);
     }
 
     /**
@@ -95,19 +221,60 @@ public class Spline {
         return segments[pos.seg].curvature(pos.alpha);
     }
 
+    /**
+     * Finds the position, derivatives, heading and curvature
+     * of a point in one pass without creating any objects.
+     * @param alpha progression on the spline [0, 1].
+     * @param out where to write the values.
+     */
+    public void evaluate(double alpha, SegmentState out) {
+        int s = segmentOf(alpha);
+        segments[s].evaluate(segmentAlpha(alpha, s), out);
+    }
+
     /**
      * @param from start progression on curve.
      * @param to end progression on curve.
      * @return arclength from one point to another.
      */
     public double getDistance(double from, double to) {
-        Position fPos = findPoint(from);
-        Position tPos = findPoint(to);
-        if (fPos.seg == tPos.seg)
-            return segments[fPos.seg].integrate(fPos.alpha, tPos.alpha);
+        int fSeg = segmentOf(from);
+        int tSeg = segmentOf(to);
+        return getDistance(fSeg, segmentAlpha(from, fSeg), tSeg, segmentAlpha(to, tSeg));
+    }
+
+    /**
+     * @param fSeg segment of the start point.
+     * @param fAlpha progression of the start point on its segment.
+     * @param tSeg segment of the end point.
+     * @param tAlpha progression of the end point on its segment.
+     * @return arclength from one point to another.
+     */
+    private double getDistance(int fSeg, double fAlpha, int tSeg, double tAlpha) {
+        if (fSeg == tSeg)
+            return segments[fSeg].integrate(fAlpha, tAlpha);
+        else if (fSeg > tSeg)
+            return -getDistance(tSeg, tAlpha, fSeg, fAlpha);
         else
-            return segments[fPos.seg].integrate(fPos.alpha, 1.0) +
-                    getDistance((fPos.seg + 1.0) / segments.length, to);
+            return segments[fSeg].integrate(fAlpha, 1.0) +
+                    (arcLengths[tSeg] - arcLengths[fSeg + 1]) +
+                    segments[tSeg].integrate(0.0, tAlpha);
+    }
+
+    /**
+     * @param alpha progression on the curve [0, 1].
+     * @return arclength from the start of the spline to the point.
+     */
+    public double getDistance(double alpha) {
+        int s = segmentOf(alpha);
+        return arcLengths[s] + segments[s].integrate(0.0, segmentAlpha(alpha, s));
+    }
+
+    /**
+     * @return arclength of the whole spline.
+     */
+    public double getLength() {
+        return arcLengths[segments.length];
     }
 
     /**
@@ -115,13 +282,46 @@ public class Spline {
      * @return a waypoint on the curve.
      */
     public Waypoint getWaypoint(double alpha) {
-        Waypoint wp = new Waypoint(getPoint(alpha), getHeading(alpha));
-        wp.distanceFromStart = getDistance(0, alpha);
-        wp.distanceFromEnd   = getDistance(alpha, 1.0);
-        wp.curvature         = getCurvature(alpha);
+        SegmentState state = new SegmentState();
+        evaluate(alpha, state);
+        Waypoint wp = new Waypoint(state.x, state.y, state.heading);
+        wp.distanceFromStart = getDistance(alpha);
+        wp.distanceFromEnd   = getLength() - wp.distanceFromStart;
+        wp.curvature         = state.curvature;
         return wp;
     }
 
+    /**
+     * Writes a point on the curve straight into a trajectory
+     * buffer instead of creating a waypoint.
+     * @param alpha progression on the curve [0, 1].
+     * @param buf buffer to write into.
+     * @param i index of the point in the buffer.
+     */
+    public void getWaypoint(double alpha, TrajectoryBuffer buf, int i) {
+        getWaypoint(alpha, buf, i, new SegmentState());
+    }
+
+    /**
+     * Writes a point on the curve straight into a trajectory
+     * buffer without creating any objects.
+     * @param alpha progression on the curve [0, 1].
+     * @param buf buffer to write into.
+     * @param i index of the point in the buffer.
+     * @param state scratch space used while finding the point.
+     */
+    public void getWaypoint(double alpha, TrajectoryBuffer buf, int i, SegmentState state) {
+        int s = segmentOf(alpha);
+        double a = segmentAlpha(alpha, s);
+        segments[s].evaluate(a, state);
+        buf.x[i]                 = state.x;
+        buf.y[i]                 = state.y;
+        buf.heading[i]           = state.heading;
+        buf.distanceFromStart[i] = arcLengths[s] + segments[s].integrate(0.0, a);
+        buf.distanceFromEnd[i]   = getLength() - buf.distanceFromStart[i];
+        buf.curvature[i]         = state.curvature;
+    }
+
     /**
      * @return the amount of segments in the curve.
      */
@@ -129,15 +329,26 @@ public class Spline {
         return segments.length;
     }
 
-    /** Gets control points: Vectors that will define the curve. */
+    /**
+     * @param seg id of the segment.
+     * @return the segment, shared with splines made from this one
+     *         by withWaypoints when its points did not change.
+     */
+    Segment getSegment(int seg) {
+        return segments[seg];
+    }
+
+    /**
+     * @param seg id of the segment.
+     * @return arclength from the start of the spline to the start of the segment.
+     */
+    double getSegmentStart(int seg) {
+        return arcLengths[seg];
+    }
+
+    /** Gets control points: the waypoints the curve goes through. */
     public Waypoint[] getControlPoints() {
-        Waypoint[] w = new Waypoint[size() + 1];
-        for (int i = 0; i < size(); i++) {
-            w[i] = (Waypoint) segments[i].points[0];
-        }
-        Segment last = segments[size() -1];
-        w[size()] = (Waypoint) last.points[last.points.length - 1];
-        return w;
+        return waypoints.clone();
     }
 
     @Override
@@ -4,6 +4,9 @@ import gen.segments.CubicBezierSegment.CubicBezierSegmentFactory;
 import gen.segments.CubicHermiteSegment.CubicHermiteSegmentFactory;
 import gen.segments.QuinticBezierSegment.QuinticBezierSegmentFactory;
 import gen.segments.QuinticHermiteSegment.QuinticHermiteSegmentFactory;
+import gen.segments.Quadrature;
+import gen.segments.Segment;
+import gen.segments.SegmentState;
 
 /**
  * CenterTrajectory.java
@@ -14,12 +17,40 @@ import gen.segments.QuinticHermiteSegment.QuinticHermiteSegmentFactory;
  */
 
 import java.util.ArrayList;
-
-public class Trajectory {
-
-    private ArrayList<Waypoint> traj;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class Trajectory implements Iterable<Waypoint> {
+
+    private TrajectoryBuffer traj;
+	/** Points sampled on each segment of the spline. Only trajectories made by an edit
+	 *  keep them once generated, so the next edit does not sample segments that did not change. */
+	private SegmentSamples[] samples;
+	/** Whether samples are kept after they are joined. */
+	private final boolean keepSamples;
+	/** Progression along the whole spline of each sampled point, dropped once the points dt apart are made. */
+	private double[] alphas;
+	/** Time spent in each stage of making the trajectory, null unless stats are enabled. */
+	private final GenerationStats stats;
+	/** Segment evaluations and arc length integrals done while sampling, for the stats. */
+	private long evaluations, quadratures;
 
 	public final int sampleRate;
+	/** Limits used to place points when sampling adaptively, null otherwise. */
+	public final Tolerances tolerances;
+	/** How closely the segments find their arc lengths. */
+	public final Quadrature quadrature;
+	public final boolean parallel;
 	public final double dt;
 	public final double maxVelocity, maxAcceleration, maxJerk;
 	public final FitMethod method;
@@ -29,6 +60,7 @@ public class Trajectory {
 	 * @param method which type of spline to use.
 	 * @param sampleRate how many points per segment to use to sample curve.
 	 *                   higher rates give better results.
+	 *                   SampleRate.ADAPTIVE samples with the default tolerances.
 	 * @param tightness a scale factor for heading.
 	 *                  affects how robot turns through out the path.
 	 * @param dt how far apart each point should be in time.
@@ -38,43 +70,290 @@ public class Trajectory {
 	 * @param waypoints control points used to generate spline.
 	 */
 	public Trajectory(FitMethod method, int sampleRate, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+		this(method, sampleRate, tightness, dt, maxVelocity, maxAcceleration, maxJerk, false, waypoints);
+	}
+
+	/**
+	 * @param method which type of spline to use.
+	 * @param sampleRate how many points per segment to use to sample curve.
+	 *                   higher rates give better results.
+	 *                   SampleRate.ADAPTIVE samples with the default tolerances.
+	 * @param tightness a scale factor for heading.
+	 *                  affects how robot turns through out the path.
+	 * @param dt how far apart each point should be in time.
+	 * @param maxVelocity maximum allowed velocity of path.
+	 * @param maxAcceleration maximum allowed acceleration of path.
+	 * @param maxJerk maximum allowed jerk of path.
+	 * @param parallel whether to sample the spline on multiple threads (one segment
+	 *                 a task when sampling adaptively), gives the exact same
+	 *                 points as sampling on one thread.
+	 * @param waypoints control points used to generate spline.
+	 */
+	public Trajectory(FitMethod method, int sampleRate, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, boolean parallel, Waypoint... waypoints) {
+		this(method, sampleRate, Quadrature.DEFAULT, tightness, dt, maxVelocity, maxAcceleration, maxJerk, parallel, waypoints);
+	}
+
+	/**
+	 * @param method which type of spline to use.
+	 * @param sampleRate how many points per segment to use to sample curve.
+	 *                   higher rates give better results.
+	 *                   SampleRate.ADAPTIVE samples with the default tolerances.
+	 * @param quadrature how closely the segments find their arc lengths.
+	 * @param tightness a scale factor for heading.
+	 *                  affects how robot turns through out the path.
+	 * @param dt how far apart each point should be in time.
+	 * @param maxVelocity maximum allowed velocity of path.
+	 * @param maxAcceleration maximum allowed acceleration of path.
+	 * @param maxJerk maximum allowed jerk of path.
+	 * @param parallel whether to sample the spline on multiple threads (one segment
+	 *                 a task when sampling adaptively), gives the exact same
+	 *                 points as sampling on one thread.
+	 * @param waypoints control points used to generate spline.
+	 */
+	public Trajectory(FitMethod method, int sampleRate, Quadrature quadrature, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, boolean parallel, Waypoint... waypoints) {
+		this(method, sampleRate, sampleRate == SampleRate.ADAPTIVE.getRate() ? Tolerances.DEFAULT : null, quadrature,
+				tightness, dt, maxVelocity, maxAcceleration, maxJerk, parallel, null, waypoints);
+	}
+
+	/**
+	 * Places points along each segment based on how much it bends
+	 * instead of using the same amount of points for every segment.
+	 * @param method which type of spline to use.
+	 * @param tolerances how far apart points are allowed to be.
+	 * @param tightness a scale factor for heading.
+	 *                  affects how robot turns through out the path.
+	 * @param dt how far apart each point should be in time.
+	 * @param maxVelocity maximum allowed velocity of path.
+	 * @param maxAcceleration maximum allowed acceleration of path.
+	 * @param maxJerk maximum allowed jerk of path.
+	 * @param waypoints control points used to generate spline.
+	 */
+	public Trajectory(FitMethod method, Tolerances tolerances, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+		this(method, SampleRate.ADAPTIVE.getRate(), tolerances, Quadrature.DEFAULT, tightness, dt, maxVelocity, maxAcceleration, maxJerk, false, null, waypoints);
+	}
+
+	/**
+	 * Makes a trajectory out of points that were already generated
+	 * with these settings, used to load trajectories from a cache.
+	 * @param traj the generated points, null to generate them.
+	 */
+	Trajectory(FitMethod method, int sampleRate, Tolerances tolerances, Quadrature quadrature, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, boolean parallel, TrajectoryBuffer traj, Waypoint... waypoints) {
+		this(method, sampleRate, tolerances, quadrature, tightness, dt, maxVelocity, maxAcceleration, maxJerk, parallel, traj, true, waypoints);
+	}
+
+	/**
+	 * @param traj the generated points, null to generate them.
+	 * @param timed whether to find the points dt apart, otherwise only the samples are kept
+	 *              (with their times) for a PointIterator to make the points from.
+	 */
+	private Trajectory(FitMethod method, int sampleRate, Tolerances tolerances, Quadrature quadrature, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, boolean parallel, TrajectoryBuffer traj, boolean timed, Waypoint... waypoints) {
 		this.method = method;
+		stats = GenerationStats.create();
+		if (stats != null) stats.begin();
 		switch(method) {
 			case CUBIC_BEZIER:
-				spline = new Spline(tightness, new CubicBezierSegmentFactory(), waypoints);
+				spline = new Spline(tightness, new CubicBezierSegmentFactory(quadrature), waypoints);
 				break;
 			case QUINTIC_HERMITE:
-				spline = new Spline(tightness, new QuinticHermiteSegmentFactory(), waypoints);
+				spline = new Spline(tightness, new QuinticHermiteSegmentFactory(quadrature), waypoints);
 				break;
 			case QUINTIC_BEZIER:
-				spline = new Spline(tightness, new QuinticBezierSegmentFactory(), waypoints);
+				spline = new Spline(tightness, new QuinticBezierSegmentFactory(quadrature), waypoints);
 				break;
 			default:
-				spline = new Spline(tightness, new CubicHermiteSegmentFactory(), waypoints);
+				spline = new Spline(tightness, new CubicHermiteSegmentFactory(quadrature), waypoints);
 				break;
 		}
+		if (stats != null) stats.end(GenerationStats.Stage.FIT, spline.size(), 0, spline.built);
 		this.sampleRate = sampleRate;
+		this.tolerances = tolerances;
+		this.quadrature = quadrature;
+		this.parallel = parallel;
 		this.dt = dt;
 		this.maxVelocity = maxVelocity;
 		this.maxAcceleration = maxAcceleration;
 		this.maxJerk = maxJerk;
-		traj = new ArrayList<>();
-		generate();
+		keepSamples = false;
+		if (traj != null) {
+			this.traj = traj;
+		} else {
+			this.traj = new TrajectoryBuffer(0);
+			samples = new SegmentSamples[spline.size()];
+			generate(timed);
+		}
 	}
 
+	/**
+	 * Makes the points of a trajectory one at a time as they are asked for, without
+	 * keeping them. Only the samples of the spline are kept, so memory does not grow
+	 * with the length (or dt) of the path. The points are the same as the ones of
+	 * a Trajectory made with the same arguments.
+	 * @param method which type of spline to use.
+	 * @param sampleRate how many points per segment to use to sample curve.
+	 * @param tightness a scale factor for heading.
+	 * @param dt how far apart each point should be in time.
+	 * @param maxVelocity maximum allowed velocity of path.
+	 * @param maxAcceleration maximum allowed acceleration of path.
+	 * @param maxJerk maximum allowed jerk of path.
+	 * @param waypoints control points used to generate spline.
+	 * @return the points, in order.
+	 */
+	public static PointIterator iterate(FitMethod method, int sampleRate, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+		Tolerances tolerances = sampleRate == SampleRate.ADAPTIVE.getRate() ? Tolerances.DEFAULT : null;
+		Trajectory sampled = new Trajectory(method, sampleRate, tolerances, Quadrature.DEFAULT, tightness, dt, maxVelocity, maxAcceleration, maxJerk, false, null, false, waypoints);
+		return new PointIterator(sampled, sampled.traj, sampled.alphas);
+	}
+
+	/**
+	 * Makes a trajectory with the settings of another one along a new spline.
+	 * Samples of segments shared by both splines are reused when previous was
+	 * made by an edit too, and the samples of the new trajectory are kept.
+	 * @param previous trajectory to take the settings and samples from.
+	 * @param edit makes the new spline from previous.spline with withWaypoints.
+	 */
+	private Trajectory(Trajectory previous, UnaryOperator<Spline> edit) {
+		this.method = previous.method;
+		stats = GenerationStats.create();
+		if (stats != null) stats.begin();
+		this.spline = edit.apply(previous.spline);
+		if (stats != null) stats.end(GenerationStats.Stage.FIT, spline.size(), 0, spline.built);
+		this.sampleRate = previous.sampleRate;
+		this.tolerances = previous.tolerances;
+		this.quadrature = previous.quadrature;
+		this.parallel = previous.parallel;
+		this.dt = previous.dt;
+		this.maxVelocity = previous.maxVelocity;
+		this.maxAcceleration = previous.maxAcceleration;
+		this.maxJerk = previous.maxJerk;
+		keepSamples = true;
+		traj = new TrajectoryBuffer(0);
+		samples = new SegmentSamples[spline.size()];
+		if (previous.samples != null) {
+			IdentityHashMap<Segment, SegmentSamples> cached = new IdentityHashMap<>();
+			for (int s = 0; s < previous.spline.size(); s++) {
+				cached.put(previous.spline.getSegment(s), previous.samples[s]);
+			}
+			for (int s = 0; s < spline.size(); s++) {
+				samples[s] = cached.get(spline.getSegment(s));
+			}
+		}
+		generate(true);
+	}
+
+	/**
+	 * Makes a trajectory with the same settings through new points.
+	 * The new trajectory keeps its samples for the next edit, so in a chain
+	 * of edits only segments whose two points changed are sampled again
+	 * (the first edit of a trajectory made by a constructor samples every
+	 * segment). The velocities and times are found again for the whole path.
+	 * @param waypoints control points used to generate spline.
+	 * @return the new trajectory.
+	 */
+	public Trajectory withWaypoints(Waypoint... waypoints) {
+		return new Trajectory(this, s -> s.withWaypoints(waypoints));
+	}
+
+	/**
+	 * @param index index of the point to move.
+	 * @param wp new position and heading of the point.
+	 * @return a trajectory with the point moved, only the
+	 *         two segments next to it are sampled again.
+	 */
+	public Trajectory moveWaypoint(int index, Waypoint wp) {
+		return new Trajectory(this, s -> s.moveWaypoint(index, wp));
+	}
+
+	/**
+	 * @param index index the new point will have.
+	 * @param wp the point to add.
+	 * @return a trajectory with the point added, only the
+	 *         segments next to it are sampled again.
+	 */
+	public Trajectory insertWaypoint(int index, Waypoint wp) {
+		return new Trajectory(this, s -> s.insertWaypoint(index, wp));
+	}
+
+	/**
+	 * @param index index of the point to remove.
+	 * @return a trajectory without the point, only the
+	 *         segment replacing it is sampled again.
+	 */
+	public Trajectory removeWaypoint(int index) {
+		return new Trajectory(this, s -> s.removeWaypoint(index));
+	}
+
+	/**
+	 * @return a copy of every point, iterate over the trajectory
+	 *         (or use forEachPoint) to go through them without copying all of them.
+	 */
 	public ArrayList<Waypoint> getPoints() {
-		try {
-			ArrayList<Waypoint> clone = new ArrayList<>(traj.size());
-			for (Waypoint waypoint : traj) {
-				clone.add((Waypoint) waypoint.clone());
+		return traj.toWaypoints();
+	}
+
+	/**
+	 * @return the points in order, each one made when it is reached.
+	 */
+	@Override
+	public Iterator<Waypoint> iterator() {
+		return new Iterator<Waypoint>() {
+			private int i;
+
+			@Override
+			public boolean hasNext() {
+				return i < traj.size();
 			}
-			return clone;
-		} catch (Exception e) {
-			System.out.println("error in copying");
-			return null;
+
+			@Override
+			public Waypoint next() {
+				if (i >= traj.size()) throw new NoSuchElementException();
+				return traj.getWaypoint(i++);
+			}
+		};
+	}
+
+	/**
+	 * @return the points in order, splits evenly for parallel streams.
+	 */
+	@Override
+	public Spliterator<Waypoint> spliterator() {
+		return new PointSpliterator(traj, 0, traj.size());
+	}
+
+	/**
+	 * @return a stream of the points in order.
+	 */
+	public Stream<Waypoint> points() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * Gives every point to a sink in order, reusing one waypoint for all of them.
+	 * @param sink where the points go.
+	 */
+	public void forEachPoint(PointSink sink) {
+		Waypoint point = new Waypoint(0, 0, 0);
+		for (int i = 0; i < traj.size(); i++) {
+			traj.getWaypoint(i, point);
+			sink.accept(point);
 		}
 	}
 
+	/**
+	 * @return the trajectory in column form, shared with
+	 *         this trajectory so it should not be modified.
+	 */
+	public TrajectoryBuffer getBuffer() {
+		return traj;
+	}
+
+	/**
+	 * @return time spent in each stage of making this trajectory,
+	 *         null unless GenerationStats were enabled when it was made.
+	 */
+	public GenerationStats getStats() {
+		return stats;
+	}
+
 	/**
 	 * @param value value to be bounded
 	 * @param max highest allowed value
@@ -87,15 +366,334 @@ public class Trajectory {
 
 	/**
 	 * samples the spline by generating sampleRate #
-	 * of points per segment.
+	 * of points per segment, segments that already
+	 * have samples are skipped.
 	 */
 	private void sample() {
-		if (!traj.isEmpty()) traj.clear();
-		int NUMBER_OF_POINTS = sampleRate * spline.size();
-		for (int i = 0; i <= NUMBER_OF_POINTS; i++) {
-			double a = (double) i / NUMBER_OF_POINTS;
-			traj.add(spline.getWaypoint(a));
+		if (tolerances != null && parallel) {
+			ArrayList<ForkJoinTask<SegmentSamples>> tasks = new ArrayList<>();
+			for (int s = 0; s < samples.length; s++) {
+				if (samples[s] != null) continue;
+				Segment segment = spline.getSegment(s);
+				tasks.add(ForkJoinTask.adapt(() -> sampleAdaptive(segment)));
+			}
+			ForkJoinTask.invokeAll(tasks);
+			int task = 0;
+			for (int s = 0; s < samples.length; s++) {
+				if (samples[s] != null) continue;
+				samples[s] = tasks.get(task++).join();
+				evaluations += samples[s].evaluations;
+				quadratures += samples[s].quadratures;
+			}
+		} else if (tolerances != null) {
+			for (int s = 0; s < samples.length; s++) {
+				checkInterrupted();
+				if (samples[s] != null) continue;
+				samples[s] = sampleAdaptive(spline.getSegment(s));
+				evaluations += samples[s].evaluations;
+				quadratures += samples[s].quadratures;
+			}
+		} else if (parallel) {
+			ArrayList<SampleTask> tasks = new ArrayList<>();
+			for (int s = 0; s < samples.length; s++) {
+				if (samples[s] != null) continue;
+				samples[s] = new SegmentSamples(sampleRate + 1);
+				samples[s].size = sampleRate + 1;
+				evaluations += sampleRate + 1;
+				quadratures += sampleRate + 1;
+				tasks.add(new SampleTask(spline.getSegment(s), samples[s], sampleRate, 0, sampleRate + 1));
+			}
+			// forks into the common pool when called from outside of it
+			ForkJoinTask.invokeAll(tasks);
+		} else {
+			SegmentState state = new SegmentState();
+			for (int s = 0; s < samples.length; s++) {
+				if (samples[s] != null) continue;
+				checkInterrupted();
+				Segment segment = spline.getSegment(s);
+				samples[s] = new SegmentSamples(sampleRate + 1);
+				for (int i = 0; i <= sampleRate; i++) {
+					if ((i & 4095) == 4095) checkInterrupted();
+					samples[s].add(segment, (double) i / sampleRate, state);
+				}
+				evaluations += sampleRate + 1;
+				quadratures += sampleRate + 1;
+			}
+		}
+		join();
+	}
+
+	/**
+	 * puts the samples of every segment one after another, moving their
+	 * distances from being along the segment to being along the spline.
+	 * the last point of a segment is the first point of the next one,
+	 * so it is only kept for the last segment. the samples of each
+	 * segment are dropped afterwards unless they are kept for edits.
+	 */
+	private void join() {
+		int size = 1;
+		for (SegmentSamples block : samples) size += block.size - 1;
+		traj = new TrajectoryBuffer(size);
+		traj.setSize(size);
+		alphas = new double[size];
+
+		double length = spline.getLength();
+		int i = 0;
+		for (int s = 0; s < samples.length; s++) {
+			SegmentSamples block = samples[s];
+			int count = s == samples.length - 1 ? block.size : block.size - 1;
+			double start = spline.getSegmentStart(s);
+			double after = length - spline.getSegmentStart(s + 1);
+			System.arraycopy(block.x, 0, traj.x, i, count);
+			System.arraycopy(block.y, 0, traj.y, i, count);
+			System.arraycopy(block.heading, 0, traj.heading, i, count);
+			System.arraycopy(block.curvature, 0, traj.curvature, i, count);
+			for (int j = 0; j < count; j++, i++) {
+				// progression along the whole spline, which is what Spline.evaluate takes
+				alphas[i] = (s + block.alpha[j]) / samples.length;
+				traj.distanceFromStart[i] = start + block.distanceFromStart[j];
+				traj.distanceFromEnd[i] = after + block.distanceFromEnd[j];
+			}
+		}
+		if (!keepSamples) samples = null;
+	}
+
+	/**
+	 * samples a segment by splitting it in half
+	 * until every piece is within the tolerances.
+	 * does not touch the trajectory, so segments can be sampled on different threads.
+	 * one state and one middle point for each depth are made for the whole segment.
+	 * @param segment the segment to sample.
+	 * @return the points of the segment, with the evaluations it took.
+	 */
+	private SegmentSamples sampleAdaptive(Segment segment) {
+		SegmentSamples block = new SegmentSamples((1 << Tolerances.MIN_DEPTH) + 1);
+		SegmentState state = new SegmentState();
+		Waypoint[] middles = new Waypoint[Tolerances.MAX_DEPTH + 1];
+		for (int d = 0; d < middles.length; d++) middles[d] = new Waypoint(0, 0, 0);
+		block.add(segment, 0.0, state);
+		Waypoint start = point(segment, 0.0, state, new Waypoint(0, 0, 0));
+		Waypoint end = point(segment, 1.0, state, new Waypoint(0, 0, 0));
+		subdivide(segment, block, state, middles, 0.0, start, 1.0, end, 0);
+		// both ends, then every kept sample (it is evaluated again with its distance)
+		block.evaluations += 2 + block.size;
+		block.quadratures += block.size;
+		return block;
+	}
+
+	/**
+	 * adds samples between two points on a segment, not including
+	 * the first one (it was already added).
+	 * @param segment the segment being sampled.
+	 * @param block where to add the samples.
+	 * @param state scratch space used to evaluate the segment.
+	 * @param middles the middle point of the piece being split at each depth, the
+	 *                middle of a piece is only needed until its halves are sampled.
+	 * @param from progression of the first point.
+	 * @param start the first point.
+	 * @param to progression of the last point.
+	 * @param end the last point.
+	 * @param depth how many times the segment has been split.
+	 */
+	private void subdivide(Segment segment, SegmentSamples block, SegmentState state, Waypoint[] middles,
+						   double from, Waypoint start, double to, Waypoint end, int depth) {
+		double mid = (from + to) / 2.0;
+		Waypoint middle = point(segment, mid, state, middles[depth]);
+		block.evaluations++;
+		if (depth < Tolerances.MAX_DEPTH &&
+				(depth < Tolerances.MIN_DEPTH || !accepts(segment, block, from, start, middle, to, end))) {
+			subdivide(segment, block, state, middles, from, start, mid, middle, depth + 1);
+			subdivide(segment, block, state, middles, mid, middle, to, end, depth + 1);
+		} else {
+			block.add(segment, to, state);
+		}
+	}
+
+	/**
+	 * @param segment the segment being sampled.
+	 * @param block where the integral is counted.
+	 * @return whether the piece from start to end is within the tolerances.
+	 */
+	private boolean accepts(Segment segment, SegmentSamples block, double from, Waypoint start, Waypoint middle, double to, Waypoint end) {
+		block.quadratures++;
+		return tolerances.accepts(start, middle, end, segment.integrate(from, to), segment.length());
+	}
+
+	/**
+	 * @param segment the segment the point is on.
+	 * @param alpha progression on the segment [0, 1].
+	 * @param state scratch space used to evaluate the segment.
+	 * @param into where to write the position, heading and curvature of the point.
+	 * @return into.
+	 */
+	private static Waypoint point(Segment segment, double alpha, SegmentState state, Waypoint into) {
+		segment.evaluate(alpha, state);
+		into.x = state.x;
+		into.y = state.y;
+		into.heading = state.heading;
+		into.curvature = state.curvature;
+		return into;
+	}
+
+	/**
+	 * Points sampled on one segment, with distances
+	 * measured from the ends of the segment.
+	 */
+	private static class SegmentSamples {
+
+		private double[] alpha, x, y, heading, curvature,
+				distanceFromStart, distanceFromEnd;
+		private int size;
+		/** Evaluations and arc length integrals done to place the points adaptively, for the stats. */
+		private long evaluations, quadratures;
+
+		/**
+		 * @param capacity how many points can be held before growing.
+		 */
+		private SegmentSamples(int capacity) {
+			alpha             = new double[capacity];
+			x                 = new double[capacity];
+			y                 = new double[capacity];
+			heading           = new double[capacity];
+			curvature         = new double[capacity];
+			distanceFromStart = new double[capacity];
+			distanceFromEnd   = new double[capacity];
+		}
+
+		/**
+		 * @param segment the segment being sampled.
+		 * @param a progression of the point on the segment [0, 1].
+		 * @param state scratch space used while finding the point.
+		 */
+		private void add(Segment segment, double a, SegmentState state) {
+			if (size == alpha.length) {
+				int capacity = size * 2;
+				alpha             = Arrays.copyOf(alpha, capacity);
+				x                 = Arrays.copyOf(x, capacity);
+				y                 = Arrays.copyOf(y, capacity);
+				heading           = Arrays.copyOf(heading, capacity);
+				curvature         = Arrays.copyOf(curvature, capacity);
+				distanceFromStart = Arrays.copyOf(distanceFromStart, capacity);
+				distanceFromEnd   = Arrays.copyOf(distanceFromEnd, capacity);
+			}
+			set(size++, segment, a, state);
+		}
+
+		/**
+		 * @param i index of the point.
+		 * @param segment the segment being sampled.
+		 * @param a progression of the point on the segment [0, 1].
+		 * @param state scratch space used while finding the point.
+		 */
+		private void set(int i, Segment segment, double a, SegmentState state) {
+			segment.evaluate(a, state);
+			alpha[i]             = a;
+			x[i]                 = state.x;
+			y[i]                 = state.y;
+			heading[i]           = state.heading;
+			curvature[i]         = state.curvature;
+			distanceFromStart[i] = segment.integrate(0.0, a);
+			distanceFromEnd[i]   = segment.length() - distanceFromStart[i];
+		}
+
+	}
+
+	/**
+	 * Goes through a range of points of a trajectory,
+	 * split in half for each thread of a parallel stream.
+	 */
+	private static class PointSpliterator implements Spliterator<Waypoint> {
+
+		private final TrajectoryBuffer traj;
+		private int from;
+		private final int to;
+
+		/**
+		 * @param traj the points.
+		 * @param from index of the first point.
+		 * @param to index after the last point.
+		 */
+		private PointSpliterator(TrajectoryBuffer traj, int from, int to) {
+			this.traj = traj;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Waypoint> action) {
+			if (from >= to) return false;
+			action.accept(traj.getWaypoint(from++));
+			return true;
 		}
+
+		@Override
+		public Spliterator<Waypoint> trySplit() {
+			int mid = (from + to) >>> 1;
+			if (mid <= from) return null;
+			Spliterator<Waypoint> first = new PointSpliterator(traj, from, mid);
+			from = mid;
+			return first;
+		}
+
+		@Override
+		public long estimateSize() {
+			return to - from;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+		}
+
+	}
+
+	/**
+	 * Samples a range of points of a segment, splitting
+	 * itself in half until the range is small enough.
+	 * Every point is found the same way as when sampling on one thread,
+	 * so the result does not depend on how the range was split.
+	 */
+	private static class SampleTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** Ranges with less points than this are sampled on the current thread. */
+		private static final int THRESHOLD = 4096;
+
+		private final Segment segment;
+		private final SegmentSamples block;
+		private final int rate;
+		private final int from, to;
+
+		/**
+		 * @param segment segment to sample.
+		 * @param block where to write the points, already sized to hold every point.
+		 * @param rate the amount of steps the segment is divided into.
+		 * @param from first index to sample.
+		 * @param to index after the last one to sample.
+		 */
+		private SampleTask(Segment segment, SegmentSamples block, int rate, int from, int to) {
+			this.segment = segment;
+			this.block = block;
+			this.rate = rate;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				SegmentState state = new SegmentState();
+				for (int i = from; i < to; i++) {
+					block.set(i, segment, (double) i / rate, state);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new SampleTask(segment, block, rate, from, mid),
+						new SampleTask(segment, block, rate, mid, to));
+			}
+		}
+
 	}
 
 	/**
@@ -105,15 +703,15 @@ public class Trajectory {
 	// adapted from jackfel's (team 3641) white paper which explains how to find velocity found here:
 	// https://www.chiefdelphi.com/t/how-does-a-robot-pathfinder-motion-profiler-work/165533
 	private void getVelocities() {
-		for (Waypoint waypoint : traj) {
+		for (int i = 0; i < traj.size(); i++) {
 			//Gets the velocity for the accelerating, cruise, and decelerating cases
 			//Using the kinematic equation Vf^2 = Vi^2 + 2ad
-			double accelerate = Math.sqrt(2 * maxAcceleration * waypoint.distanceFromStart);
+			double accelerate = Math.sqrt(2 * maxAcceleration * traj.distanceFromStart[i]);
 			double cruise = maxVelocity;
-			double decelerate = Math.sqrt(2 * maxAcceleration * waypoint.distanceFromEnd);
+			double decelerate = Math.sqrt(2 * maxAcceleration * traj.distanceFromEnd[i]);
 
 			//Sets the velocity to the minimum of these
-			waypoint.velocity = Math.min(Math.min(accelerate, cruise), decelerate);
+			traj.velocity[i] = Math.min(Math.min(accelerate, cruise), decelerate);
 		}
 	}
 
@@ -124,12 +722,12 @@ public class Trajectory {
 	 */
 	private void getTimes() {
 		double totalTime = 0;
-		traj.get(0).time = totalTime;
+		traj.time[0] = totalTime;
 		for (int i = 1; i < traj.size(); i++) {
-			double dd = traj.get(i).distanceFromStart - traj.get(i-1).distanceFromStart;
-			double dv = (traj.get(i).velocity + traj.get(i-1).velocity) / 2.0;
+			double dd = traj.distanceFromStart[i] - traj.distanceFromStart[i-1];
+			double dv = (traj.velocity[i] + traj.velocity[i-1]) / 2.0;
 			totalTime += dd / dv;
-			traj.get(i).time = totalTime;
+			traj.time[i] = totalTime;
 		}
 	}
 
@@ -138,11 +736,11 @@ public class Trajectory {
 	 * using velocity vs. time.
 	 */
 	private void getAccelerations() {
-		traj.get(0).acceleration = 0;
+		traj.acceleration[0] = 0;
 		for(int i = 1; i < traj.size(); i++) {
-			double dv = traj.get(i).velocity - traj.get(i - 1).velocity;
-			double dt = traj.get(i).time - traj.get(i - 1).time;
-			traj.get(i).acceleration = bound(dv / dt, maxAcceleration, -maxAcceleration);
+			double dv = traj.velocity[i] - traj.velocity[i - 1];
+			double dt = traj.time[i] - traj.time[i - 1];
+			traj.acceleration[i] = bound(dv / dt, maxAcceleration, -maxAcceleration);
 		}
 	}
 
@@ -151,41 +749,34 @@ public class Trajectory {
 	 * using acceleration vs. time.
 	 */
 	private void getJerks() {
-		traj.get(0).jerk = 0;
+		traj.jerk[0] = 0;
 		for (int i = 1; i < traj.size(); i++) {
-			double da = traj.get(i).acceleration - traj.get(i - 1).acceleration;
-			double dt = traj.get(i).time - traj.get(i - 1).time;
-			traj.get(i).jerk = bound(da / dt, maxJerk, -maxJerk);
+			double da = traj.acceleration[i] - traj.acceleration[i - 1];
+			double dt = traj.time[i] - traj.time[i - 1];
+			traj.jerk[i] = bound(da / dt, maxJerk, -maxJerk);
 		}
 	}
 
 	/**
 	 * uses a sample centerectory to find specific pts
 	 * that are dt apart from each other.
+	 * the samples already know their distance along the spline, so they
+	 * act as a distance -> alpha table: each new point interpolates its
+	 * distance and alpha between the two samples around it in one pass
+	 * and only evaluates its position on its segment (no arc length integrals).
+	 * the points are made one at a time by a PointIterator, which also
+	 * finds their velocities, times, accelerations and jerks.
 	 */
 	private void timeParameterize() {
-		double totalTime = traj.get(traj.size() - 1).time;
-		// delete the old centerectory and save it elsewhere
-		ArrayList<Waypoint> ct = new ArrayList<>(traj);
-		traj.clear();
-
-		// iterate through the timestamps adding dt or the time difference each time
-		int index = 0;
-		for(double time = 0; time <= totalTime; time += dt) {
-			for (int i = index; i < ct.size() - 1; i++) {
-				// find the pair of points with times around our target time
-				if (ct.get(i).time <= time && ct.get(i + 1).time > time) {
-					double timeDiff = ct.get(i + 1).time - ct.get(i).time;
-					double timeNeed = time - ct.get(i).time;
-					double percentNeed = timeNeed / timeDiff;
-					double percentage = (i + percentNeed) / (sampleRate * spline.size());
-					traj.add(spline.getWaypoint(percentage));
-					index = i;
-					break;
-				}
-			}
+		// keep the sampled centerectory and write the new one into a fresh buffer
+		TrajectoryBuffer ct = traj;
+		PointIterator points = new PointIterator(this, ct, alphas);
+		traj = new TrajectoryBuffer(points.estimateSize() + 1);
+		Waypoint point = new Waypoint(0, 0, 0);
+		while (points.next(point)) {
+			traj.add(point);
 		}
-		calculate();
+		alphas = null;
 	}
 
 	/**
@@ -198,13 +789,43 @@ public class Trajectory {
 		getJerks(); //60 ft/sec^3 best for trapezoidal motion profile
 	}
 
+	/**
+	 * Stops generating when the thread was interrupted, so a trajectory that is
+	 * no longer wanted (the gui's points changed) does not finish generating.
+	 * The interrupt is left set for whoever interrupted the thread.
+	 */
+	private static void checkInterrupted() {
+		if (Thread.currentThread().isInterrupted()) throw new CancellationException("Generation interrupted");
+	}
+
 	/**
 	 * samples spline and then generates a time parameterized centerectory.
+	 * @param timed whether to find the points dt apart, or stop after the samples.
+	 * @throws CancellationException if the thread is interrupted, checked every
+	 *         few thousand samples and between the stages.
 	 */
-	private void generate() {
+	private void generate(boolean timed) {
+		if (stats == null) {
+			sample();
+			checkInterrupted();
+			calculate();
+			checkInterrupted();
+			if (timed) timeParameterize();
+			return;
+		}
+		stats.begin();
 		sample();
+		stats.end(GenerationStats.Stage.SAMPLE, traj.size(), evaluations, quadratures);
+		checkInterrupted();
+		stats.begin();
 		calculate();
+		stats.end(GenerationStats.Stage.CALCULATE, traj.size(), 0, 0);
+		checkInterrupted();
+		if (!timed) return;
+		stats.begin();
 		timeParameterize();
+		// one spline evaluation per point
+		stats.end(GenerationStats.Stage.TIME_PARAMETERIZE, traj.size(), traj.size(), 0);
 	}
 
 	/**
@@ -252,10 +873,11 @@ public class Trajectory {
 	 * @author Tahsin Ahmed
 	 *
 	 * Some pre-defined values for sample rate of spline.
+	 * ADAPTIVE places points using Tolerances instead of a rate.
 	 */
 	public enum SampleRate {
 
-		LOW(1000), MEDIUM(10000), HIGH(100000);
+		LOW(1000), MEDIUM(10000), HIGH(100000), ADAPTIVE(0);
 
 		private int rate;
 
@@ -270,9 +892,89 @@ public class Trajectory {
 			return rate;
 		}
 
+		/**
+		 * @return whether points are placed using Tolerances instead of the rate.
+		 */
+		public boolean isAdaptive() {
+			return this == ADAPTIVE;
+		}
+
 		@Override
 		public String toString() {
-			return Integer.toString(rate);
+			return isAdaptive() ? "adaptive" : Integer.toString(rate);
+		}
+
+	}
+
+	/**
+	 * How much the spline is allowed to change between two
+	 * points when sampling adaptively. A piece of a segment
+	 * is split in half until it is within every limit.
+	 */
+	public static class Tolerances {
+
+		/** About 5 times less points than SampleRate.LOW (50 times less than MEDIUM), with points
+		 *  within about 1e-3 units and velocities within about 3e-3 units/s of SampleRate.HIGH
+		 *  (LOW is within about 3e-5 of both). Bends get more points, every segment gets at least 128. */
+		public static final Tolerances DEFAULT = new Tolerances(0.05, 0.5, 1e-5, 1.0 / 128);
+
+		/** Every segment is split at least this many times. */
+		static final int MIN_DEPTH = 3;
+		/** A segment is never split more than this many times. */
+		static final int MAX_DEPTH = 16;
+
+		/** Largest change in heading between points in radians. */
+		public final double heading;
+		/** Largest change in curvature between points. */
+		public final double curvature;
+		/** Largest difference between the arc length and the straight line between points. */
+		public final double chordError;
+		/** Largest arc length between points as a part of the length of the segment,
+		 *  keeps the velocity curve smooth on straight parts. */
+		public final double maxStep;
+
+		/**
+		 * @param heading largest change in heading between points in radians.
+		 * @param curvature largest change in curvature between points.
+		 * @param chordError largest difference between the arc length and
+		 *                   the straight line between points.
+		 * @param maxStep largest arc length between points as a part of the
+		 *                length of the segment (0.01 is at least 100 points).
+		 */
+		public Tolerances(double heading, double curvature, double chordError, double maxStep) {
+			this.heading = heading;
+			this.curvature = curvature;
+			this.chordError = chordError;
+			this.maxStep = maxStep;
+		}
+
+		/**
+		 * @param start first point of the piece.
+		 * @param middle point halfway through the piece.
+		 * @param end last point of the piece.
+		 * @param arc arc length of the piece.
+		 * @param length arc length of the whole segment.
+		 * @return whether the piece does not need to be split.
+		 */
+		boolean accepts(Waypoint start, Waypoint middle, Waypoint end, double arc, double length) {
+			if (arc > maxStep * length) return false;
+			if (arc - start.distanceTo(end) > chordError) return false;
+			if (Math.abs(angleBetween(start.heading, middle.heading)) > heading) return false;
+			if (Math.abs(angleBetween(middle.heading, end.heading)) > heading) return false;
+			if (Math.abs(end.curvature - start.curvature) > curvature) return false;
+			return true;
+		}
+
+		/**
+		 * @param from first angle in radians.
+		 * @param to second angle in radians.
+		 * @return the change from one angle to the other between -pi and pi.
+		 */
+		private static double angleBetween(double from, double to) {
+			double diff = (to - from) % (2 * Math.PI);
+			if (diff > Math.PI) diff -= 2 * Math.PI;
+			if (diff < -Math.PI) diff += 2 * Math.PI;
+			return diff;
 		}
 
 	}
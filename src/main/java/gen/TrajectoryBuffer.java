@@ -0,0 +1,193 @@
+package gen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * TrajectoryBuffer.java
+ *
+ * Stores the points of a trajectory as columns of primitives
+ * (one array per waypoint field) instead of one object per point.
+ */
+
+public class TrajectoryBuffer {
+
+    /** Columns of the trajectory, index i of each column belongs to point i. */
+    public double[] time, x, y,
+                    distanceFromStart, distanceFromEnd,
+                    velocity, acceleration, jerk,
+                    heading, curvature;
+    /** Amount of points stored in the columns. */
+    private int size;
+
+    /**
+     * @param capacity how many points the columns can hold before growing.
+     */
+    public TrajectoryBuffer(int capacity) {
+        capacity = Math.max(capacity, 1);
+        time              = new double[capacity];
+        x                 = new double[capacity];
+        y                 = new double[capacity];
+        distanceFromStart = new double[capacity];
+        distanceFromEnd   = new double[capacity];
+        velocity          = new double[capacity];
+        acceleration      = new double[capacity];
+        jerk              = new double[capacity];
+        heading           = new double[capacity];
+        curvature         = new double[capacity];
+        size = 0;
+    }
+
+    /**
+     * @return the amount of points in the trajectory.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the trajectory has no points.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all points, keeping the allocated columns. */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Appends a point with every field set to zero.
+     * @return index of the new point.
+     */
+    public int add() {
+        if (size == time.length) grow(size * 2);
+        int i = size++;
+        time[i] = x[i] = y[i] = 0;
+        distanceFromStart[i] = distanceFromEnd[i] = 0;
+        velocity[i] = acceleration[i] = jerk[i] = 0;
+        heading[i] = curvature[i] = 0;
+        return i;
+    }
+
+    /**
+     * Resizes the trajectory, points added this way have every field set to zero.
+     * Used when the points are going to be filled in out of order.
+     * @param size new amount of points.
+     */
+    public void setSize(int size) {
+        if (size > time.length) grow(Math.max(size, this.size * 2));
+        if (size > this.size) {
+            for (double[] column : columns()) {
+                Arrays.fill(column, this.size, size, 0);
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * Appends a copy of a waypoint.
+     * @param wp waypoint to copy into the columns.
+     * @return index of the new point.
+     */
+    public int add(Waypoint wp) {
+        int i = add();
+        set(i, wp);
+        return i;
+    }
+
+    /**
+     * @param i index of the point to overwrite.
+     * @param wp waypoint to copy into the columns.
+     */
+    public void set(int i, Waypoint wp) {
+        time[i]              = wp.time;
+        x[i]                 = wp.x;
+        y[i]                 = wp.y;
+        distanceFromStart[i] = wp.distanceFromStart;
+        distanceFromEnd[i]   = wp.distanceFromEnd;
+        velocity[i]          = wp.velocity;
+        acceleration[i]      = wp.acceleration;
+        jerk[i]              = wp.jerk;
+        heading[i]           = wp.heading;
+        curvature[i]         = wp.curvature;
+    }
+
+    /**
+     * @param i index of the point.
+     * @return a new waypoint holding the values of the point.
+     */
+    public Waypoint getWaypoint(int i) {
+        Waypoint wp = new Waypoint(x[i], y[i], heading[i]);
+        getWaypoint(i, wp);
+        return wp;
+    }
+
+    /**
+     * @param i index of the point.
+     * @param into waypoint the values of the point are copied into.
+     */
+    public void getWaypoint(int i, Waypoint into) {
+        into.x                 = x[i];
+        into.y                 = y[i];
+        into.heading           = heading[i];
+        into.time              = time[i];
+        into.distanceFromStart = distanceFromStart[i];
+        into.distanceFromEnd   = distanceFromEnd[i];
+        into.velocity          = velocity[i];
+        into.acceleration      = acceleration[i];
+        into.jerk              = jerk[i];
+        into.curvature         = curvature[i];
+    }
+
+    /**
+     * Shrinks the columns to the amount of points, for buffers that are kept for a long time.
+     */
+    public void trimToSize() {
+        if (time.length > Math.max(size, 1)) grow(Math.max(size, 1));
+    }
+
+    /**
+     * @return how many points the columns can hold before growing.
+     */
+    public int capacity() {
+        return time.length;
+    }
+
+    /**
+     * @return every point of the trajectory as a waypoint.
+     */
+    public ArrayList<Waypoint> toWaypoints() {
+        ArrayList<Waypoint> waypoints = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            waypoints.add(getWaypoint(i));
+        }
+        return waypoints;
+    }
+
+    /**
+     * @return every column of the trajectory, in the order they are declared.
+     */
+    double[][] columns() {
+        return new double[][] {time, x, y, distanceFromStart, distanceFromEnd,
+                velocity, acceleration, jerk, heading, curvature};
+    }
+
+    /**
+     * @param capacity new length of every column.
+     */
+    private void grow(int capacity) {
+        time              = Arrays.copyOf(time, capacity);
+        x                 = Arrays.copyOf(x, capacity);
+        y                 = Arrays.copyOf(y, capacity);
+        distanceFromStart = Arrays.copyOf(distanceFromStart, capacity);
+        distanceFromEnd   = Arrays.copyOf(distanceFromEnd, capacity);
+        velocity          = Arrays.copyOf(velocity, capacity);
+        acceleration      = Arrays.copyOf(acceleration, capacity);
+        jerk              = Arrays.copyOf(jerk, capacity);
+        heading           = Arrays.copyOf(heading, capacity);
+        curvature         = Arrays.copyOf(curvature, capacity);
+    }
+
+}
@@ -0,0 +1,305 @@
+package gen;
+
+import gen.segments.Quadrature;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * TrajectoryCache.java
+ *
+ * Keeps generated trajectories so that generating the same path with
+ * the same settings again does not redo the work. Trajectories are
+ * found by a hash of everything they are generated from, the most
+ * recently used ones are kept in memory and every one is written to
+ * a directory so they are still there after a restart.
+ */
+
+public class TrajectoryCache {
+
+    /** Changes whenever generation or the file format changes, so old files are not used. */
+    private static final int VERSION = 3;
+    /** First bytes of every cache file. */
+    private static final int MAGIC = 0x54524a43;
+    /** Extension of the cache files. */
+    private static final String EXTENSION = ".traj";
+    /** Bytes used by one point a trajectory can hold, a double for each of its 10 columns. */
+    private static final long POINT_BYTES = 10 * Double.BYTES;
+
+    /** Hit and miss counts of a cache at some point in time. */
+    public static class Stats {
+
+        /** Lookups found in memory. */
+        public final long memoryHits;
+        /** Lookups found on disk. */
+        public final long diskHits;
+        /** Lookups that had to generate the trajectory. */
+        public final long misses;
+        /** Trajectories removed from memory to make space. */
+        public final long evictions;
+
+        private Stats(long memoryHits, long diskHits, long misses, long evictions) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        /**
+         * @return fraction of lookups that did not generate [0, 1].
+         */
+        public double hitRate() {
+            long total = memoryHits + diskHits + misses;
+            return total == 0 ? 0 : (double) (memoryHits + diskHits) / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("memory hits: %d, disk hits: %d, misses: %d, evictions: %d, hit rate: %.1f%%",
+                    memoryHits, diskHits, misses, evictions, hitRate() * 100);
+        }
+
+    }
+
+    /** Trajectories in memory, the least recently used one first. */
+    private final LinkedHashMap<String, Trajectory> memory = new LinkedHashMap<>(16, 0.75f, true);
+    /** Largest amount of bytes of points kept in memory. */
+    private final long maxMemoryBytes;
+    /** Where the trajectories are written, null to keep them in memory only. */
+    private final File directory;
+    private long memoryBytes;
+    private long memoryHits, diskHits, misses, evictions;
+
+    /**
+     * @param maxMemoryBytes largest amount of bytes of points kept in memory.
+     * @param directory where trajectories are written so they can be used
+     *                  after a restart, null to keep them in memory only.
+     */
+    public TrajectoryCache(long maxMemoryBytes, File directory) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Can not make cache directory " + directory);
+        }
+    }
+
+    /**
+     * Same as the matching Trajectory constructor, but returns
+     * the trajectory from the cache when it was generated before.
+     * The trajectory is shared with other callers so its buffer should not be modified.
+     */
+    public Trajectory get(Trajectory.FitMethod method, int sampleRate, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+        return get(method, sampleRate, Quadrature.DEFAULT, tightness, dt, maxVelocity, maxAcceleration, maxJerk, waypoints);
+    }
+
+    /**
+     * Same as the matching Trajectory constructor, but returns
+     * the trajectory from the cache when it was generated before
+     * with the same quadrature tolerances.
+     * The trajectory is shared with other callers so its buffer should not be modified.
+     */
+    public Trajectory get(Trajectory.FitMethod method, int sampleRate, Quadrature quadrature, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+        Trajectory.Tolerances tolerances = sampleRate == Trajectory.SampleRate.ADAPTIVE.getRate() ? Trajectory.Tolerances.DEFAULT : null;
+        return get(method, sampleRate, tolerances, quadrature, tightness, dt, maxVelocity, maxAcceleration, maxJerk, waypoints);
+    }
+
+    /**
+     * Same as the matching Trajectory constructor, but returns
+     * the trajectory from the cache when it was generated before.
+     * The trajectory is shared with other callers so its buffer should not be modified.
+     */
+    public Trajectory get(Trajectory.FitMethod method, Trajectory.Tolerances tolerances, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+        return get(method, Trajectory.SampleRate.ADAPTIVE.getRate(), tolerances, Quadrature.DEFAULT, tightness, dt, maxVelocity, maxAcceleration, maxJerk, waypoints);
+    }
+
+    private Trajectory get(Trajectory.FitMethod method, int sampleRate, Trajectory.Tolerances tolerances, Quadrature quadrature, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+        String key = key(method, sampleRate, tolerances, quadrature, tightness, dt, maxVelocity, maxAcceleration, maxJerk, waypoints);
+        synchronized (this) {
+            Trajectory traj = memory.get(key);
+            if (traj != null) {
+                memoryHits++;
+                return traj;
+            }
+        }
+
+        TrajectoryBuffer loaded = directory == null ? null : read(file(key));
+        Trajectory traj;
+        if (loaded != null) {
+            traj = new Trajectory(method, sampleRate, tolerances, quadrature, tightness, dt, maxVelocity, maxAcceleration, maxJerk, false, loaded, waypoints);
+        } else {
+            traj = new Trajectory(method, sampleRate, tolerances, quadrature, tightness, dt, maxVelocity, maxAcceleration, maxJerk, false, null, waypoints);
+            // the points are kept for a long time, do not keep the space left over from generating
+            traj.getBuffer().trimToSize();
+            if (directory != null) write(file(key), traj.getBuffer());
+        }
+
+        synchronized (this) {
+            if (loaded != null) diskHits++;
+            else misses++;
+            put(key, traj);
+        }
+        return traj;
+    }
+
+    /**
+     * Removes every trajectory from memory and from the directory.
+     */
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+        if (directory == null) return;
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) return;
+        for (File file : files) {
+            try {
+                Files.delete(file.toPath());
+            } catch (IOException io) {
+                System.out.println("invalid file!");
+            }
+        }
+    }
+
+    /**
+     * @return hit and miss counts since the cache was made.
+     */
+    public synchronized Stats getStats() {
+        return new Stats(memoryHits, diskHits, misses, evictions);
+    }
+
+    /**
+     * Adds a trajectory to memory, removing the least
+     * recently used ones until it fits.
+     */
+    private void put(String key, Trajectory traj) {
+        Trajectory old = memory.put(key, traj);
+        if (old != null) memoryBytes -= bytes(old);
+        memoryBytes += bytes(traj);
+        Iterator<Map.Entry<String, Trajectory>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Map.Entry<String, Trajectory> eldest = it.next();
+            // keep the new trajectory even when it is bigger than the limit by itself
+            if (eldest.getValue() == traj) continue;
+            memoryBytes -= bytes(eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * @return bytes held by the points of a trajectory, counting the space
+     *         its columns have for more points. Trajectories made by the
+     *         cache do not keep their samples, so the points are most of it.
+     */
+    private static long bytes(Trajectory traj) {
+        return traj.getBuffer().capacity() * POINT_BYTES;
+    }
+
+    /**
+     * @return a hex SHA-256 hash of everything the trajectory is generated from.
+     *         doubles are hashed by their bits so the key is the same on every machine.
+     */
+    private static String key(Trajectory.FitMethod method, int sampleRate, Trajectory.Tolerances tolerances, Quadrature quadrature, double tightness, double dt, double maxVelocity, double maxAcceleration, double maxJerk, Waypoint... waypoints) {
+        byte[] name = method.name().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(name.length + 3 * Integer.BYTES + (11 + 3 * waypoints.length) * Double.BYTES);
+        buf.putInt(VERSION);
+        buf.put(name);
+        buf.putInt(sampleRate);
+        if (tolerances != null) {
+            buf.putDouble(tolerances.heading).putDouble(tolerances.curvature)
+                    .putDouble(tolerances.chordError).putDouble(tolerances.maxStep);
+        }
+        buf.putDouble(quadrature.absoluteTolerance).putDouble(quadrature.relativeTolerance);
+        buf.putDouble(tightness).putDouble(dt)
+                .putDouble(maxVelocity).putDouble(maxAcceleration).putDouble(maxJerk);
+        buf.putInt(waypoints.length);
+        for (Waypoint wp : waypoints) {
+            buf.putDouble(wp.x).putDouble(wp.y).putDouble(wp.heading);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(buf.array(), 0, buf.position());
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param key hash of the trajectory.
+     * @return the file the trajectory is written to.
+     */
+    private File file(String key) {
+        return new File(directory, key + EXTENSION);
+    }
+
+    /**
+     * @param file file to read.
+     * @return the points in the file, null if it does not exist or can not be read.
+     */
+    private static TrajectoryBuffer read(File file) {
+        if (!file.isFile()) return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate((int) channel.size());
+            while (buf.hasRemaining() && channel.read(buf) >= 0);
+            buf.flip();
+            if (buf.remaining() < 3 * Integer.BYTES || buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            int size = buf.getInt();
+            TrajectoryBuffer traj = new TrajectoryBuffer(size);
+            traj.setSize(size);
+            double[][] columns = traj.columns();
+            if (buf.remaining() != columns.length * size * Double.BYTES) return null;
+            for (double[] column : columns) {
+                buf.asDoubleBuffer().get(column, 0, size);
+                buf.position(buf.position() + size * Double.BYTES);
+            }
+            return traj;
+        } catch (IOException io) {
+            System.out.println("invalid file!");
+            return null;
+        }
+    }
+
+    /**
+     * Writes to a temporary file first and then renames it,
+     * so other programs never see a half written file.
+     * @param file file to write.
+     * @param traj the points to write.
+     */
+    private static void write(File file, TrajectoryBuffer traj) {
+        double[][] columns = traj.columns();
+        ByteBuffer buf = ByteBuffer.allocate(3 * Integer.BYTES + columns.length * traj.size() * Double.BYTES);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(traj.size());
+        for (double[] column : columns) {
+            buf.asDoubleBuffer().put(column, 0, traj.size());
+            buf.position(buf.position() + traj.size() * Double.BYTES);
+        }
+        buf.flip();
+        try {
+            Path tmp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buf.hasRemaining()) channel.write(buf);
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException io) {
+            System.out.println("invalid file!");
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package gen;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+
+/**
+ * TrajectoryView.java
+ *
+ * A read-only view of a trajectory in column form. The columns are
+ * not copied, so a view can be handed out to anything that follows or
+ * exports the trajectory without risk of it being changed.
+ */
+
+public class TrajectoryView {
+
+    /** Read-only columns of the trajectory, index i of each column belongs to point i. */
+    public final DoubleBuffer time, x, y,
+                              distanceFromStart, distanceFromEnd,
+                              velocity, acceleration, jerk,
+                              heading, curvature;
+    private final int size;
+
+    /**
+     * @param traj trajectory to view, it should not change while the view is used.
+     */
+    public TrajectoryView(TrajectoryBuffer traj) {
+        size = traj.size();
+        time              = view(traj.time);
+        x                 = view(traj.x);
+        y                 = view(traj.y);
+        distanceFromStart = view(traj.distanceFromStart);
+        distanceFromEnd   = view(traj.distanceFromEnd);
+        velocity          = view(traj.velocity);
+        acceleration      = view(traj.acceleration);
+        jerk              = view(traj.jerk);
+        heading           = view(traj.heading);
+        curvature         = view(traj.curvature);
+    }
+
+    /**
+     * @param column a column of the trajectory.
+     * @return a read-only view of the points in the column.
+     */
+    private DoubleBuffer view(double[] column) {
+        return DoubleBuffer.wrap(column, 0, size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the amount of points in the trajectory.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i index of the point.
+     * @return a new waypoint holding the values of the point.
+     */
+    public Waypoint getWaypoint(int i) {
+        Waypoint wp = new Waypoint(x.get(i), y.get(i), heading.get(i));
+        wp.time              = time.get(i);
+        wp.distanceFromStart = distanceFromStart.get(i);
+        wp.distanceFromEnd   = distanceFromEnd.get(i);
+        wp.velocity          = velocity.get(i);
+        wp.acceleration      = acceleration.get(i);
+        wp.jerk              = jerk.get(i);
+        wp.curvature         = curvature.get(i);
+        return wp;
+    }
+
+    /**
+     * @return every point of the trajectory as a waypoint.
+     */
+    public ArrayList<Waypoint> toWaypoints() {
+        ArrayList<Waypoint> waypoints = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            waypoints.add(getWaypoint(i));
+        }
+        return waypoints;
+    }
+
+}
@@ -1,6 +1,8 @@
 package gen.modifiers;
 
+import gen.GenerationStats;
 import gen.Trajectory;
+import gen.TrajectoryBuffer;
 
 /**
  * Modifier.java
@@ -13,6 +15,8 @@ import gen.Trajectory;
 public abstract class Modifier {
 
     public final Trajectory original;
+    /** Time spent modifying, null unless stats are enabled. */
+    protected final GenerationStats stats = GenerationStats.create();
 
     /**
      * @param original the basis trajectory
@@ -21,4 +25,23 @@ public abstract class Modifier {
         this.original = original;
     }
 
+    /**
+     * @return names of the trajectories made by the modifier, used to name exported files.
+     */
+    public abstract String[] getNames();
+
+    /**
+     * @param i index of the trajectory, in the order of getNames.
+     * @return the trajectory in column form, shared so it should not be modified.
+     */
+    public abstract TrajectoryBuffer getBuffer(int i);
+
+    /**
+     * @return time spent modifying the trajectory, null
+     *         unless GenerationStats were enabled when it was made.
+     */
+    public GenerationStats getStats() {
+        return stats;
+    }
+
 }
@@ -0,0 +1,210 @@
+package gen.modifiers;
+
+import gen.GenerationStats;
+import gen.Trajectory;
+import gen.TrajectoryBuffer;
+import gen.TrajectoryView;
+import gen.Vector;
+import gen.Waypoint;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SwerveModifier.java
+ *
+ * Modifies into one trajectory per module to be used for swerve drive.
+ * The robot faces the direction of the path, each module moves with the
+ * robot plus its share of the robot turning, v * curvature * offset.
+ *
+ * For every module, heading is the steering angle of the module relative
+ * to the front of the robot (counterclockwise, in radians) and velocity
+ * is the wheel speed. Distances are measured along the module's track.
+ */
+
+public class SwerveModifier extends Modifier {
+
+    /** Names of the modules made by the wheelbase/track width constructor. */
+    private static final String[] CORNERS = {"front_left", "front_right", "back_left", "back_right"};
+    /** Points times modules under which the modules are made on the current thread. */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    /** Points each task handles when made on multiple threads. */
+    private static final int CHUNK = 4096;
+
+    private final Vector[] offsets;
+    private final String[] names;
+    private final TrajectoryBuffer[] modules;
+    private final TrajectoryView[] views;
+
+    /**
+     * Makes a module at each corner of a rectangle around the center of the robot.
+     * @param original the basis trajectory
+     * @param wheelbase distance between the front and back modules
+     * @param trackWidth distance between the left and right modules
+     */
+    public SwerveModifier(Trajectory original, double wheelbase, double trackWidth) {
+        this(original, CORNERS, new Vector[] {
+                new Vector(wheelbase / 2, trackWidth / 2), new Vector(wheelbase / 2, -trackWidth / 2),
+                new Vector(-wheelbase / 2, trackWidth / 2), new Vector(-wheelbase / 2, -trackWidth / 2)});
+    }
+
+    /**
+     * @param original the basis trajectory
+     * @param offsets position of each module from the center of the robot,
+     *                x is towards the front and y is towards the left
+     */
+    public SwerveModifier(Trajectory original, Vector... offsets) {
+        this(original, numbered(offsets.length), offsets);
+    }
+
+    private SwerveModifier(Trajectory original, String[] names, Vector[] offsets) {
+        super(original);
+        this.names = names;
+        this.offsets = offsets.clone();
+        int n = original.getBuffer().size();
+        if (stats != null) stats.begin();
+        modules = new TrajectoryBuffer[offsets.length];
+        for (int m = 0; m < modules.length; m++) {
+            modules[m] = new TrajectoryBuffer(n);
+            modules[m].setSize(n);
+        }
+        gen(n);
+        if (stats != null) stats.end(GenerationStats.Stage.MODIFY, n, 0, 0);
+        views = new TrajectoryView[modules.length];
+        for (int m = 0; m < modules.length; m++) {
+            views[m] = new TrajectoryView(modules[m]);
+        }
+    }
+
+    /**
+     * @param count amount of modules.
+     * @return "module0", "module1", ...
+     */
+    private static String[] numbered(int count) {
+        String[] names = new String[count];
+        for (int m = 0; m < count; m++) names[m] = "module" + m;
+        return names;
+    }
+
+    /**
+     * Finds every module's track. Positions, speeds and steering angles of a
+     * point only depend on that point, so they are found for every module in
+     * one pass (sharing the sin and cos of the heading). Distances, accelerations
+     * and jerks depend on the point before, so they are found per module after.
+     * On many points the first pass is split into chunks and the second into
+     * modules, both on multiple threads, which gives the same results.
+     * @param n amount of points in the center trajectory.
+     */
+    private void gen(int n) {
+        if ((long) n * modules.length < PARALLEL_THRESHOLD) {
+            for (int i = 0; i < n; i++) {
+                point(i);
+                for (TrajectoryBuffer module : modules) difference(module, i);
+            }
+            return;
+        }
+        ForkJoinTask.invokeAll(new PointTask(0, n));
+        ArrayList<RecursiveAction> tasks = new ArrayList<>();
+        for (TrajectoryBuffer module : modules) {
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    for (int i = 0; i < n; i++) difference(module, i);
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Writes position, time, speed and steering angle of every module at a point.
+     * @param i index of the point.
+     */
+    private void point(int i) {
+        TrajectoryBuffer center = original.getBuffer();
+        double cos = Math.cos(center.heading[i]);
+        double sin = Math.sin(center.heading[i]);
+        double k = center.curvature[i];
+        for (int m = 0; m < modules.length; m++) {
+            TrajectoryBuffer module = modules[m];
+            Vector o = offsets[m];
+            module.x[i] = center.x[i] + cos * o.x - sin * o.y;
+            module.y[i] = center.y[i] + sin * o.x + cos * o.y;
+            module.time[i] = center.time[i];
+            // direction of the module relative to the robot for every unit the robot
+            // moves: forward plus the turn (angular velocity = v * curvature) times the offset
+            double fx = 1 - k * o.y;
+            double fy = k * o.x;
+            module.heading[i] = Math.atan2(fy, fx);
+            module.velocity[i] = center.velocity[i] * Math.hypot(fx, fy);
+        }
+    }
+
+    /**
+     * Writes distance, acceleration and jerk of a module at a point,
+     * the point before has to be done already.
+     * @param module the module's track.
+     * @param i index of the point.
+     */
+    private static void difference(TrajectoryBuffer module, int i) {
+        if (i == 0) return;
+        double dt = module.time[i] - module.time[i - 1];
+        module.distanceFromStart[i] = module.distanceFromStart[i - 1] +
+                Math.hypot(module.x[i] - module.x[i - 1], module.y[i] - module.y[i - 1]);
+        module.acceleration[i] = (module.velocity[i] - module.velocity[i - 1]) / dt;
+        module.jerk[i] = (module.acceleration[i] - module.acceleration[i - 1]) / dt;
+    }
+
+    /** Runs point over a range of points, splitting itself into chunks. */
+    private class PointTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from, to;
+
+        private PointTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                for (int i = from; i < to; i++) point(i);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PointTask(from, mid), new PointTask(mid, to));
+            }
+        }
+
+    }
+
+    /**
+     * @return the amount of modules.
+     */
+    public int size() {
+        return modules.length;
+    }
+
+    @Override
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    @Override
+    public TrajectoryBuffer getBuffer(int i) {
+        return modules[i];
+    }
+
+    /**Get copy of a module's track*/
+    public ArrayList<Waypoint> getModule(int i) {
+        return modules[i].toWaypoints();
+    }
+
+    /**Get a read-only view of a module's track, shared instead of copied*/
+    public TrajectoryView getModuleView(int i) {
+        return views[i];
+    }
+
+}
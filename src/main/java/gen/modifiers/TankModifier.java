@@ -1,7 +1,10 @@
 package gen.modifiers;
 
+import gen.GenerationStats;
+import gen.PointSink;
 import gen.Trajectory;
-import gen.Vector;
+import gen.TrajectoryBuffer;
+import gen.TrajectoryView;
 import gen.Waypoint;
 
 import java.util.ArrayList;
@@ -17,7 +20,8 @@ import java.util.ArrayList;
 public class TankModifier extends Modifier {
 
     private double offset;
-    private ArrayList<Waypoint> left, right;
+    private TrajectoryBuffer left, right;
+    private TrajectoryView leftView, rightView;
 
     /**
      * @param original the basis trajectory
@@ -26,91 +30,171 @@ public class TankModifier extends Modifier {
     public TankModifier(Trajectory original, double offset) {
         super(original);
         this.offset = offset;
-        genLeft();
-        genRight();
+        if (stats != null) stats.begin();
+        gen();
+        if (stats != null) stats.end(GenerationStats.Stage.MODIFY, original.getBuffer().size(), 0, 0);
     }
 
-    /**Generate the left*/
-    private void genLeft() {
-        left = new ArrayList<>();
-        double total_dist = 0;
-        Waypoint last = null;
-        for(Waypoint w : original.getPoints()) {
-            Vector length = w.rotate(Math.PI / 2).direction().multiply(offset);
-            Waypoint next = w.offset(length);
+    /**
+     * Offsets every point of the center trajectory sideways to both
+     * sides in one pass, writing straight into columns sized up front.
+     *
+     * positive curvature; turning counter-clockwise; left on inside; less velocity
+     * negative curvature; turning clockwise; left on outside; greater velocity
+     * (and the other way around for the right side)
+     */
+    private void gen() {
+        TrajectoryBuffer center = original.getBuffer();
+        int n = center.size();
+        left = new TrajectoryBuffer(n);
+        right = new TrajectoryBuffer(n);
+        left.setSize(n);
+        right.setSize(n);
+        double leftDist = 0, rightDist = 0;
+        for (int i = 0; i < n; i++) {
+            // rotating the heading by +-pi/2 swaps cos and sin, so one of each is enough
+            double dx = -Math.sin(center.heading[i]) * offset;
+            double dy = Math.cos(center.heading[i]) * offset;
+            double dv = center.curvature[i] * offset;
+            double t = center.time[i];
+
+            left.x[i] = center.x[i] + dx;
+            left.y[i] = center.y[i] + dy;
+            right.x[i] = center.x[i] - dx;
+            right.y[i] = center.y[i] - dy;
+            left.heading[i] = right.heading[i] = center.heading[i];
+            left.time[i] = right.time[i] = t;
+            left.velocity[i] = center.velocity[i] - dv;
+            right.velocity[i] = center.velocity[i] + dv;
+
+            if (i > 0) {
+                leftDist += Math.hypot(left.x[i] - left.x[i - 1], left.y[i] - left.y[i - 1]);
+                rightDist += Math.hypot(right.x[i] - right.x[i - 1], right.y[i] - right.y[i - 1]);
+                double dt = t - center.time[i - 1];
+                left.acceleration[i] = (left.velocity[i] - left.velocity[i - 1]) / dt;
+                right.acceleration[i] = (right.velocity[i] - right.velocity[i - 1]) / dt;
+                left.jerk[i] = (left.acceleration[i] - left.acceleration[i - 1]) / dt;
+                right.jerk[i] = (right.acceleration[i] - right.acceleration[i - 1]) / dt;
+            }
+            left.distanceFromStart[i] = leftDist;
+            right.distanceFromStart[i] = rightDist;
+        }
+        leftView = new TrajectoryView(left);
+        rightView = new TrajectoryView(right);
+    }
 
-            next.time = w.time;
+    /**
+     * Modifies points as they come instead of a whole trajectory, giving the
+     * same points as a TankModifier. Only the last point of each side is kept,
+     * so with Trajectory.iterate a path of any length takes the same memory.
+     * @param offset 1/2 wheel base width
+     * @param left where the left points go.
+     * @param right where the right points go.
+     * @return a sink for the center points, in order.
+     */
+    public static PointSink split(double offset, PointSink left, PointSink right) {
+        return new SplitSink(offset, left, right);
+    }
 
-            total_dist += last == null ? 0 : next.distanceTo(last);
-            next.distanceFromStart = total_dist;
+    /** The same math as gen, one point at a time. */
+    private static class SplitSink implements PointSink {
+
+        private final double offset;
+        private final PointSink leftSink, rightSink;
+        private final Waypoint left = new Waypoint(0, 0, 0), right = new Waypoint(0, 0, 0);
+        private boolean first = true;
+        private double leftDist, rightDist;
+        private double lastTime, lastLeftX, lastLeftY, lastRightX, lastRightY;
+        private double lastLeftVelocity, lastRightVelocity, lastLeftAcceleration, lastRightAcceleration;
+
+        private SplitSink(double offset, PointSink leftSink, PointSink rightSink) {
+            this.offset = offset;
+            this.leftSink = leftSink;
+            this.rightSink = rightSink;
+        }
 
-            /*
-             * positive curvature; turning counter-clockwise; left on inside; less velocity
-             * negative curvature; turning clockwise; left on outside; greater velocity
-             */
-            next.velocity = w.velocity - (w.curvature * offset);
+        @Override
+        public void accept(Waypoint center) {
+            double dx = -Math.sin(center.heading) * offset;
+            double dy = Math.cos(center.heading) * offset;
+            double dv = center.curvature * offset;
+            double t = center.time;
+
+            left.x = center.x + dx;
+            left.y = center.y + dy;
+            right.x = center.x - dx;
+            right.y = center.y - dy;
+            left.heading = right.heading = center.heading;
+            left.time = right.time = t;
+            left.velocity = center.velocity - dv;
+            right.velocity = center.velocity + dv;
+
+            if (!first) {
+                leftDist += Math.hypot(left.x - lastLeftX, left.y - lastLeftY);
+                rightDist += Math.hypot(right.x - lastRightX, right.y - lastRightY);
+                double dt = t - lastTime;
+                left.acceleration = (left.velocity - lastLeftVelocity) / dt;
+                right.acceleration = (right.velocity - lastRightVelocity) / dt;
+                left.jerk = (left.acceleration - lastLeftAcceleration) / dt;
+                right.jerk = (right.acceleration - lastRightAcceleration) / dt;
+            }
+            left.distanceFromStart = leftDist;
+            right.distanceFromStart = rightDist;
+            first = false;
+
+            lastTime = t;
+            lastLeftX = left.x;
+            lastLeftY = left.y;
+            lastRightX = right.x;
+            lastRightY = right.y;
+            lastLeftVelocity = left.velocity;
+            lastRightVelocity = right.velocity;
+            lastLeftAcceleration = left.acceleration;
+            lastRightAcceleration = right.acceleration;
+            leftSink.accept(left);
+            rightSink.accept(right);
+        }
 
-            next.acceleration = last == null ? 0 : (next.velocity - last.velocity) / (next.time - last.time);
-            next.jerk = last == null ? 0 : (next.acceleration - last.acceleration) / (next.time - last.time);
+    }
 
-            left.add(next);
-            last = next;
-        }
+    @Override
+    public String[] getNames() {
+        return new String[] {"left", "right"};
+    }
+
+    @Override
+    public TrajectoryBuffer getBuffer(int i) {
+        return i == 0 ? left : right;
     }
 
     /**Get copy of left*/
     public ArrayList<Waypoint> getLeft() {
-        try {
-            ArrayList<Waypoint> clone = new ArrayList<>(left.size());
-            for (Waypoint waypoint : left)
-                clone.add((Waypoint) waypoint.clone());
-            return clone;
-        } catch (Exception e) {
-            System.out.println("error in copying");
-            return null;
-        }
+        return left.toWaypoints();
     }
 
-    /**Generate the right*/
-    private void genRight() {
-        right = new ArrayList<>();
-        double total_dist = 0;
-        double total_time = 0;
-        Waypoint last = null;
-        for(Waypoint w : original.getPoints()) {
-            Vector length = w.rotate(-Math.PI / 2).direction().multiply(offset);
-            Waypoint next = w.offset(length);
-
-            next.time = w.time;
-
-            total_dist += last == null ? 0 : next.distanceTo(last);
-            next.distanceFromStart = total_dist;
-
-            /*
-             * positive curvature; turning counter-clockwise; right on outside; greater velocity
-             * negative curvature; turning clockwise; right on inside; less velocity
-             */
-            next.velocity = w.velocity + (w.curvature * offset);
-
-            next.acceleration = last == null ? 0 : (next.velocity - last.velocity) / (next.time - last.time);
-            next.jerk = last == null ? 0 : (next.acceleration - last.acceleration) / (next.time - last.time);
+    /**Get left in column form, shared so it should not be modified*/
+    public TrajectoryBuffer getLeftBuffer() {
+        return left;
+    }
 
-            right.add(next);
-            last = next;
-        }
+    /**Get a read-only view of left, shared instead of copied*/
+    public TrajectoryView getLeftView() {
+        return leftView;
     }
 
     /**Get copy of right*/
     public ArrayList<Waypoint> getRight() {
-        try {
-            ArrayList<Waypoint> clone = new ArrayList<>(right.size());
-            for (Waypoint waypoint : right)
-                clone.add((Waypoint) waypoint.clone());
-            return clone;
-        } catch (Exception e) {
-            System.out.println("error in copying");
-            return null;
-        }
+        return right.toWaypoints();
+    }
+
+    /**Get right in column form, shared so it should not be modified*/
+    public TrajectoryBuffer getRightBuffer() {
+        return right;
+    }
+
+    /**Get a read-only view of right, shared instead of copied*/
+    public TrajectoryView getRightView() {
+        return rightView;
     }
 
 }
@@ -12,9 +12,35 @@ import gen.Waypoint;
  */
 
 public class CubicBezierSegment extends Segment {
+
+    /** The cubic bernstein polynomials in power form (row k holds the t^k terms):
+     *  (1-t)^3, 3t(1-t)^2, 3t^2(1-t), t^3 */
+    private static final double[][] BASIS = {
+            { 1,  0,  0,  0},
+            {-3,  3,  0,  0},
+            { 3, -6,  3,  0},
+            {-1,  3, -3,  1}
+    };
+
     /** A cubic bezier segment generator
      * used by the corresponding spline.  */
     public static class CubicBezierSegmentFactory implements Segment.SegmentFactory {
+
+        /** How closely the segments find their arc lengths. */
+        private final Quadrature quadrature;
+
+        /** Makes segments that find their arc lengths with Quadrature.DEFAULT. */
+        public CubicBezierSegmentFactory() {
+            this(Quadrature.DEFAULT);
+        }
+
+        /**
+         * @param quadrature how closely the segments find their arc lengths.
+         */
+        public CubicBezierSegmentFactory(Quadrature quadrature) {
+            this.quadrature = quadrature;
+        }
+
         /**
          * @param tightness A multiplier that controls how close the
          *                  control points are to the start/end of
@@ -38,7 +64,7 @@ public class CubicBezierSegment extends Segment {
             points[1] = startwp.offset(Math.cos(startwp.heading) * scale / 3, Math.sin(startwp.heading) * scale / 3).toVector();
             points[2] = endwp.offset(Math.cos(endwp.rotate(Math.PI).heading) * scale / 3, Math.sin(endwp.rotate(Math.PI).heading) * scale / 3).toVector();
 
-            return new CubicBezierSegment(points);
+            return new CubicBezierSegment(quadrature, points);
         }
 
     }
@@ -48,87 +74,16 @@ public class CubicBezierSegment extends Segment {
      * @param points the control and starting points.
      */
     public CubicBezierSegment(Vector... points) {
-        super(3, points);
+        this(Quadrature.DEFAULT, points);
     }
 
     /**
-     * @param alpha spline parameter [0, 1]
-     *              indicates progression on curve.
-     * @return the point on a curve (in vector form).
-     */
-    @Override
-    public Vector getCors(double alpha) {
-        double h0 = Math.pow(1 - alpha, 3);
-        double h1 = 3 * Math.pow(1 - alpha, 2) * alpha;
-        double h2 = 3 * (1 - alpha) * Math.pow(alpha, 2);
-        double h3 = Math.pow(alpha, 3);
-        double x = points[0].x * h0 + points[1].x * h1 +
-                points[2].x * h2 + points[3].x * h3;
-        double y = points[0].y * h0 + points[1].y * h1 +
-                points[2].y * h2 + points[3].y * h3;
-        Vector point = new Vector(x, y);
-        return point;
-    }
-
-    /**
-     * @param alpha spline parameter [0, 1]
-     *              indicates progression on curve.
-     * @return a Vector that contains the x
-     *         and y components of the derivative at that point.
-     */
-    @Override
-    public Vector differentiate(double alpha) {
-        // uses equation for bezier derivatives: Σi=0,n Bn-1,i(t) * n * (Pi+1 - pi)
-        // https://pomax.github.io/bezierinfo/#derivatives
-        double dh0 = Math.pow(1 - alpha, 2);
-        double dh1 = 2 * (1- alpha) * alpha;
-        double dh2 = Math.pow(alpha, 2);
-        double dx = 3 * (points[1].x - points[0].x) * dh0 +
-                3 * (points[2].x - points[1].x) * dh1 +
-                3 * (points[3].x - points[2].x) * dh2;
-        double dy = 3 * (points[1].y - points[0].y) * dh0 +
-                3 * (points[2].y - points[1].y) * dh1 +
-                3 * (points[3].y - points[2].y) * dh2;
-        return new Vector(dx, dy);
-    }
-
-    /**
-     * @param alpha spline parameter from [0, 1]
-     *              indicates progression on curve.
-     * @return second derivative (slope of slope)
-     *              as (x, y) vector.
-     */
-    @Override
-    public Vector differentiateS(double alpha) {
-        double ddh0 = 1 - alpha;
-        double ddh1 = alpha;
-        double ddx = 6 * (points[2].x - 2*points[1].x + points[0].x) * ddh0 +
-                    6 * (points[3].x - 2*points[2].x + points[1].x) * ddh1;
-        double ddy = 6 * (points[2].y - 2*points[1].y + points[0].y) * ddh0 +
-                6 * (points[3].y - 2*points[2].y + points[1].y) * ddh1;
-        return new Vector(ddx, ddy);
-    }
-
-    /**
-     * @param from a point on the curve.
-     * @param to another point on the curve.
-     * @return the arc length between these two points.
+     * 3 is the order of the segment.
+     * @param quadrature how closely the segment finds its arc length.
+     * @param points the control and starting points.
      */
-    @Override
-    public double integrate(double from, double to) {
-        // uses 2 point Gauss Quadrature method to approximate arc length: ∫a,b f(x)dx = Σi=0,n Ci*f(xi)
-        // https://pomax.github.io/bezierinfo/#arclength
-        // https://www.youtube.com/watch?v=unWguclP-Ds&feature=BFa&list=PLC8FC40C714F5E60F&index=1
-        // values : https://pomax.github.io/bezierinfo/legendre-gauss.html
-        final double[] WEIGHTS = {1.0000000000000000, 1.0000000000000000};
-        final double[] ABSCISSA = {-0.5773502691896257, 0.5773502691896257};
-        double sum = 0;
-        for(int i = 0; i < 2; i++) {
-            double pt = ((to - from) / 2.0) * ABSCISSA[i] + ((to + from) / 2.0);
-            Vector d = differentiate(pt);
-            sum += WEIGHTS[i] * Math.sqrt(d.x*d.x + d.y*d.y);
-        }
-        return ((to - from) / 2.0) * sum;
+    public CubicBezierSegment(Quadrature quadrature, Vector... points) {
+        super(3, BASIS, quadrature, points);
     }
 
 }
@@ -0,0 +1,66 @@
+package gen.segments;
+
+/**
+ * Quadrature.java
+ *
+ * How closely segments find their arc lengths. A segment splits itself
+ * in half wherever a 5 point Gauss-Legendre rule over a piece does not
+ * agree with the same rule over its two halves, so it only splits where
+ * its speed changes quickly (long segments with sharp bends) and a
+ * nearly straight segment needs three rules. The halves of one level
+ * are the wholes of the next, so no rule is evaluated twice.
+ *
+ * A quadrature is given to the segment factories (Trajectory passes its own
+ * to them), segments made without one use DEFAULT.
+ */
+
+public class Quadrature {
+
+    /** Within a billionth of a unit or a billionth of the length. */
+    public static final Quadrature DEFAULT = new Quadrature(1e-9, 1e-9);
+
+    /** Points of the Gauss-Legendre rule used on each piece. */
+    public static final int POINTS = 5;
+    /** Gauss-Legendre weights and abscissae on [-1, 1],
+     *  values found here: https://pomax.github.io/bezierinfo/legendre-gauss.html */
+    static final double[] WEIGHTS = {0.2369268850561891, 0.4786286704993665, 0.5688888888888889,
+                                     0.4786286704993665, 0.2369268850561891};
+    static final double[] ABSCISSA = {-0.9061798459386640, -0.5384693101056831, 0.0000000000000000,
+                                      0.5384693101056831, 0.9061798459386640};
+
+    /** A segment is never split more than this many times. */
+    static final int MAX_DEPTH = 16;
+
+    /** Largest error of a segment's length in units. */
+    public final double absoluteTolerance;
+    /** Largest error of a segment's length as a part of the length. */
+    public final double relativeTolerance;
+
+    /**
+     * The length of a segment is accurate to the larger of the tolerances.
+     * @param absoluteTolerance largest error in units.
+     * @param relativeTolerance largest error as a part of the length.
+     */
+    public Quadrature(double absoluteTolerance, double relativeTolerance) {
+        if (!(absoluteTolerance > 0) && !(relativeTolerance > 0)) {
+            throw new IllegalArgumentException("One tolerance must be positive");
+        }
+        this.absoluteTolerance = Math.max(absoluteTolerance, 0);
+        this.relativeTolerance = Math.max(relativeTolerance, 0);
+    }
+
+    /**
+     * @param length an estimate of the length of a segment.
+     * @return the largest error allowed for the whole segment, never
+     *         smaller than the rounding error of adding up the pieces.
+     */
+    double tolerance(double length) {
+        return Math.max(Math.max(absoluteTolerance, relativeTolerance * Math.abs(length)), 1e-14 * Math.abs(length));
+    }
+
+    @Override
+    public String toString() {
+        return "Quadrature(" + absoluteTolerance + ", " + relativeTolerance + ")";
+    }
+
+}
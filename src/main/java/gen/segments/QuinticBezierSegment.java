@@ -12,11 +12,39 @@ import gen.Waypoint;
  */
 
 public class QuinticBezierSegment extends Segment {
+
+    /** The quintic bernstein polynomials in power form (row k holds the t^k terms):
+     *  (5 choose i) * t^i * (1-t)^(5-i) for i = 0..5 */
+    private static final double[][] BASIS = {
+            {  1,   0,   0,   0,   0,   0},
+            { -5,   5,   0,   0,   0,   0},
+            { 10, -20,  10,   0,   0,   0},
+            {-10,  30, -30,  10,   0,   0},
+            {  5, -20,  30, -20,   5,   0},
+            { -1,   5, -10,  10,  -5,   1}
+    };
+
     /** A quintic bezier segment generator that
      * is used by the corresponding spline.
      */
 
     public static class QuinticBezierSegmentFactory implements Segment.SegmentFactory {
+
+        /** How closely the segments find their arc lengths. */
+        private final Quadrature quadrature;
+
+        /** Makes segments that find their arc lengths with Quadrature.DEFAULT. */
+        public QuinticBezierSegmentFactory() {
+            this(Quadrature.DEFAULT);
+        }
+
+        /**
+         * @param quadrature how closely the segments find their arc lengths.
+         */
+        public QuinticBezierSegmentFactory(Quadrature quadrature) {
+            this.quadrature = quadrature;
+        }
+
         /**
          * @param tightness A multiplier that controls how close the
          *                  control points are to the start/end of
@@ -41,7 +69,7 @@ public class QuinticBezierSegment extends Segment {
             points[2] = startwp.offset( Math.cos(startwp.heading) * scale * 0.4, Math.sin(startwp.heading) * scale * 0.4).toVector();
             points[3] = endwp.offset(Math.cos(endwp.rotate(Math.PI).heading) * scale * 0.4, Math.sin(endwp.rotate(Math.PI).heading) * scale * 0.4).toVector();
 
-            return new QuinticBezierSegment(points);
+            return new QuinticBezierSegment(quadrature, points);
         }
     }
 
@@ -49,95 +77,15 @@ public class QuinticBezierSegment extends Segment {
      * @param points the control and starting points.
      */
     public QuinticBezierSegment(Vector... points) {
-        super(5, points);
-    }
-
-    /**
-     * @param alpha spline parameter [0, 1]
-     *              indicates progression on curve.
-     * @return the point on a curve (in vector form).
-     */
-    @Override
-    public Vector getCors(double alpha) {
-        double f0 = Math.pow(1 - alpha, 5);
-        double f1 = 5 * Math.pow(1 - alpha, 4) * alpha;
-        double f2 = 10 * Math.pow(1 - alpha, 3) * Math.pow(alpha, 2);
-        double f3 = 10 * Math.pow(1 - alpha, 2) * Math.pow(alpha, 3);
-        double f4 = 5 * (1 - alpha) * Math.pow(alpha, 4);
-        double f5 = Math.pow(alpha, 5);
-        double x = points[0].x * f0 + points[1].x * f1 + points[2].x * f2 + points[3].x * f3 +
-                points[4].x * f4 + points[5].x * f5;
-        double y = points[0].y * f0 + points[1].y * f1 + points[2].y * f2 + points[3].y * f3 +
-                points[4].y * f4 + points[5].y * f5;
-        Vector point = new Vector(x, y);
-        return point;
-    }
-
-    /**
-     * @param alpha spline parameter [0, 1]
-     *              indicates progression on curve.
-     * @return a Vector that contains the x
-     *         and y components of the derivative at that point.
-     */
-    @Override
-    public Vector differentiate(double alpha) {
-        // uses equation for bezier derivatives: Σi=0,n Bn-1,i(t) * n * (Pi+1 - pi)
-        // https://pomax.github.io/bezierinfo/#derivatives
-        double f0 = Math.pow(1 - alpha, 4);
-        double f1 = 4 * alpha * Math.pow(1 - alpha, 3);
-        double f2 = 6 * Math.pow(alpha, 2) * Math.pow(1 - alpha, 2);
-        double f3 = 4 * Math.pow(alpha, 3) * (1 - alpha);
-        double f4 = Math.pow(alpha, 4);
-        double dx = 5 * (points[1].x - points[0].x) * f0 + 5 * (points[2].x - points[1].x) * f1 +
-                5 * (points[3].x - points[2].x) * f2 + 5 * (points[4].x - points[3].x) * f3 +
-                5 * (points[5].x - points[4].x) * f4;
-        double dy = 5 * (points[1].y - points[0].y) * f0 + 5 * (points[2].y - points[1].y) * f1 +
-                5 * (points[3].y - points[2].y) * f2 + 5 * (points[4].y - points[3].y) * f3 +
-                5 * (points[5].y - points[4].y) * f4;
-        return new Vector(dx, dy);
+        this(Quadrature.DEFAULT, points);
     }
 
     /**
-     * @param alpha spline parameter from [0, 1]
-     *              indicates progression on curve.
-     * @return second derivative (slope of slope)
-     *              as (x, y) vector.
-     */
-    @Override
-    public Vector differentiateS(double alpha) {
-        double f0 = Math.pow(1 - alpha, 3);
-        double f1 = 3 * alpha * Math.pow(1 - alpha, 2);
-        double f2 = 3 * Math.pow(alpha, 2) * (1 - alpha);
-        double f3 = Math.pow(alpha, 3);
-        double ddx = 20 * (points[2].x - 2*points[1].x + points[0].x) * f0 +
-                    20 * (points[3].x - 2*points[2].x + points[1].x) * f1 +
-                    20 * (points[4].x - 2*points[3].x + points[2].x) * f2 +
-                    20 * (points[5].x - 2*points[4].x + points[3].x) * f3;
-        double ddy = 20 * (points[2].y - 2*points[1].y + points[0].y) * f0 +
-                20 * (points[3].y - 2*points[2].y + points[1].y) * f1 +
-                20 * (points[4].y - 2*points[3].y + points[2].y) * f2 +
-                20 * (points[5].y - 2*points[4].y + points[3].y) * f3;
-        return new Vector(ddx, ddy);
-    }
-
-    /**
-     * @param from a point on the curve.
-     * @param to another point on the curve.
-     * @return the arc length between these two points.
+     * @param quadrature how closely the segment finds its arc length.
+     * @param points the control and starting points.
      */
-    @Override
-    public double integrate(double from, double to) {
-        // uses 3 point Gauss Quadrature method to approximate arc length: ∫a,b f(x)dx = Σi=0,n Ci*f(xi)
-        // values found here: https://pomax.github.io/bezierinfo/legendre-gauss.html
-        final double[] WEIGHTS = {0.5555555555555556, 0.8888888888888888, 0.5555555555555556};
-        final double[] ABSCISSA = {-0.7745966692414834, 0.0000000000000000, 0.7745966692414834};
-        double sum = 0;
-        for (int i = 0; i < 3; i++) {
-            double transformedPt = ((to - from) / 2.0) * ABSCISSA[i] + ((to + from) / 2.0);
-            Vector d = differentiate(transformedPt);
-            sum += WEIGHTS[i] * Math.sqrt(d.x * d.x + d.y * d.y);
-        }
-        return ((to - from) / 2.0) * sum;
+    public QuinticBezierSegment(Quadrature quadrature, Vector... points) {
+        super(5, BASIS, quadrature, points);
     }
 
 }
@@ -9,9 +9,39 @@ import gen.Waypoint;
  * A segment that is generated through the quintic hermite equations.
  */
 public class QuinticHermiteSegment extends Segment {
+
+    /** The quintic hermite basis functions in power form (row k holds the t^k terms):
+     *  p0 = 1 - 10t^3 + 15t^4 - 6t^5, p1 = 10t^3 - 15t^4 + 6t^5,
+     *  dp0 = t - 6t^3 + 8t^4 - 3t^5, dp1 = -4t^3 + 7t^4 - 3t^5,
+     *  ddp0 = 0.5t^2 - 1.5t^3 + 1.5t^4 - 0.5t^5, ddp1 = 0.5t^3 - t^4 + 0.5t^5 */
+    private static final double[][] BASIS = {
+            {  1,   0,  0,  0,    0,    0},
+            {  0,   0,  1,  0,    0,    0},
+            {  0,   0,  0,  0,  0.5,    0},
+            {-10,  10, -6, -4, -1.5,  0.5},
+            { 15, -15,  8,  7,  1.5,   -1},
+            { -6,   6, -3, -3, -0.5,  0.5}
+    };
+
     /** A Quintic Hermite segment generator that is
      * used by the corresponding spline.  */
     public static class QuinticHermiteSegmentFactory implements Segment.SegmentFactory {
+
+        /** How closely the segments find their arc lengths. */
+        private final Quadrature quadrature;
+
+        /** Makes segments that find their arc lengths with Quadrature.DEFAULT. */
+        public QuinticHermiteSegmentFactory() {
+            this(Quadrature.DEFAULT);
+        }
+
+        /**
+         * @param quadrature how closely the segments find their arc lengths.
+         */
+        public QuinticHermiteSegmentFactory(Quadrature quadrature) {
+            this.quadrature = quadrature;
+        }
+
         /**
          * @param tightness A multiplier that controls how close the
          *                  control points are to the start/end of
@@ -37,7 +67,7 @@ public class QuinticHermiteSegment extends Segment {
             points[4] = new Vector(0, 0);
             points[5] = new Vector(0, 0);
 
-            return new QuinticHermiteSegment(points);
+            return new QuinticHermiteSegment(quadrature, points);
         }
 
     }
@@ -47,119 +77,15 @@ public class QuinticHermiteSegment extends Segment {
      * @param points the control and starting points.
      */
     public QuinticHermiteSegment(Vector... points) {
-        super(5, points);
-    }
-
-    /**
-     * @param alpha spline parameter [0, 1]
-     *              indicates progression on curve.
-     * @return the point on a curve (in vector form).
-     */
-    @Override
-    public Vector getCors(double alpha) {
-        // Quintic Hermite basis functions.
-        double p0 = 1 - 10 * Math.pow(alpha, 3) + 15 *
-                Math.pow(alpha, 4) - 6 * Math.pow(alpha, 5);
-        double p1 = 10 * Math.pow(alpha, 3) - 15 * Math.pow(alpha, 4) +
-                6 * Math.pow(alpha, 5);
-        double dp0 = alpha - 6 * Math.pow(alpha, 3) +  8 *
-                Math.pow(alpha, 4) - 3 * Math.pow(alpha, 5);
-        double dp1 = -4 * Math.pow(alpha, 3) + 7 * Math.pow(alpha, 4) - 3 *
-                Math.pow(alpha, 5);
-        double dpp0 = 0.5 * Math.pow(alpha, 2) - (3.0 / 2.0) *
-                Math.pow(alpha, 3) + (3.0 / 2.0) * Math.pow(alpha, 4) -
-                0.5 * Math.pow(alpha, 5);
-        double dpp1 = 0.5 * Math.pow(alpha, 3) - Math.pow(alpha, 4) +
-                0.5 * Math.pow(alpha, 5);
-
-        double x = p0 * points[0].x + p1 * points[1].x + dp0 * points[2].x + dp1 * points[3].x
-                + dpp0 * points[4].x + dpp1 * points[5].x;
-        double y = p0 * points[0].y + p1 * points[1].y + dp0 * points[2].y + dp1 * points[3].y
-                + dpp0 * points[4].y + dpp1 * points[5].y;
-
-        Vector point = new Vector(x, y);
-        return point;
+        this(Quadrature.DEFAULT, points);
     }
 
     /**
-     * @param alpha spline parameter [0, 1]
-     *              indicates progression on curve.
-     * @return a Vector that contains the x
-     *         and y components of the derivative at that point.
-     */
-    @Override
-    public Vector differentiate(double alpha) {
-        double p0 = -30 * Math.pow(alpha, 2) + 60 * Math.pow(alpha, 3) -
-                30 * Math.pow(alpha, 4);
-        double p1 = 30 * Math.pow(alpha, 2) - 60 * Math.pow(alpha, 3) +
-                30 * Math.pow(alpha, 4);
-        double dp0 = 1 - 18 * Math.pow(alpha, 2) + 32 * Math.pow(alpha, 3) -
-                15 * Math.pow(alpha, 4);
-        double dp1 = -12 * Math.pow(alpha, 2) + 28 * Math.pow(alpha, 3) -
-                15 * Math.pow(alpha, 4);
-        double ddp0 = alpha - (9.0 / 2) * Math.pow(alpha, 2) + 6 *
-                Math.pow(alpha, 3) - (5.0 / 2) * Math.pow(alpha, 4);
-        double ddp1 = (3.0 / 2) * Math.pow(alpha, 2) - 4 * Math.pow(alpha, 3) +
-                (5.0 / 2) * Math.pow(alpha, 4);
-
-        double dx = points[0].x * p0 + points[1].x * p1 + points[2].x * dp0 +
-                points[3].x * dp1 + points[4].x * ddp0 + points[5].x * ddp1;
-
-        double dy = points[0].y * p0 + points[1].y * p1 + points[2].y * dp0 +
-                points[3].y * dp1 + points[4].y * ddp0 + points[5].y * ddp1;
-
-        Vector d = new Vector(dx, dy);
-        return d;
-    }
-
-    /**
-     * @param alpha spline parameter from [0, 1]
-     *              indicates progression on curve.
-     * @return second derivative (slope of slope)
-     *              as (x, y) vector.
-     */
-    @Override
-    public Vector differentiateS(double alpha) {
-        double p0 = -60 * alpha + 180 * Math.pow(alpha, 2) -
-                120 * Math.pow(alpha, 3);
-        double p1 = 60 * alpha - 180 * Math.pow(alpha, 2) +
-                120 * Math.pow(alpha, 3);
-        double dp0 = -36 * alpha + 96 * Math.pow(alpha, 2) -
-                60 * Math.pow(alpha, 3);
-        double dp1 = -24 * alpha + 84 * Math.pow(alpha, 2) -
-                60 * Math.pow(alpha, 3);
-        double ddp0 = -9 * alpha + 18 * Math.pow(alpha, 2) -
-                10 * Math.pow(alpha, 3);
-        double ddp1 = 3 * alpha - 12 * Math.pow(alpha, 2) +
-                10 * Math.pow(alpha, 3);
-
-        double ddx = points[0].x * p0 + points[1].x * p1 + points[2].x * dp0 +
-                points[3].x * dp1 + points[4].x * ddp0 + points[5].x * ddp1;
-
-        double ddy = points[0].y * p0 + points[1].y * p1 + points[2].y * dp0 +
-                points[3].y * dp1 + points[4].y * ddp0 + points[5].y * ddp1;
-
-        Vector dd = new Vector(ddx, ddy);
-        return dd;
-    }
-
-    /**
-     * @param from a point on the curve.
-     * @param to another point on the curve.
-     * @return the arc length between these two points.
+     * 5 is the order of the segment.
+     * @param quadrature how closely the segment finds its arc length.
+     * @param points the control and starting points.
      */
-    @Override
-    public double integrate(double from, double to) {
-        //uses 3 point Gauss Quadrature method to approximate arc length: ∫a,b f(x)dx = Σi=0,n Ci*f(xi)
-        // values found here: https://pomax.github.io/bezierinfo/legendre-gauss.html
-        final double[] WEIGHTS = {0.5555555555555556, 0.8888888888888888, 0.5555555555555556};
-        final double[] ABSCISSA = {-0.7745966692414834, 0.0000000000000000, 0.7745966692414834};
-        double sum = 0;
-        for (int i = 0; i < 3; i++) {
-            double transformedPt = ((to - from) / 2.0) * ABSCISSA[i] + ((to + from) / 2.0);
-            Vector d = differentiate(transformedPt);
-            sum += WEIGHTS[i] * Math.sqrt(d.x * d.x + d.y * d.y);
-        }
-        return ((to - from) / 2.0) * sum;
+    public QuinticHermiteSegment(Quadrature quadrature, Vector... points) {
+        super(5, BASIS, quadrature, points);
     }
 }
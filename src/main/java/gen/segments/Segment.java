@@ -3,6 +3,8 @@ package gen.segments;
 import gen.Vector;
 import gen.Waypoint;
 
+import java.util.Arrays;
+
 /**
  * Spline.java
  *
@@ -34,6 +36,18 @@ public abstract class Segment {
 
     /** The points used to define the spline. */
     public final Vector[] points;
+    /** Coefficients of x(t) and y(t) in power form,
+     *  index k is the coefficient of t^k. */
+    private final double[] cx, cy;
+    /** Coefficients of the first derivative. */
+    private final double[] dcx, dcy;
+    /** Coefficients of the second derivative. */
+    private final double[] ddcx, ddcy;
+    /** How closely arc lengths are found. */
+    private final Quadrature quadrature;
+    /** The pieces the segment was split into to find its length,
+     *  found the first time an arc length is needed. */
+    private volatile Pieces pieces;
 
     /**
      * @param angle to bound
@@ -46,17 +60,71 @@ public abstract class Segment {
 
     /**
      * @param n Order of spline
+     * @param basis the basis functions of the spline in power form,
+     *              basis[k][i] is the coefficient of t^k in the
+     *              function that multiplies points[i].
+     * @param points Points used to define spline
+     */
+    public Segment(int n, double[][] basis, Vector... points) {
+        this(n, basis, Quadrature.DEFAULT, points);
+    }
+
+    /**
+     * @param n Order of spline
+     * @param basis the basis functions of the spline in power form,
+     *              basis[k][i] is the coefficient of t^k in the
+     *              function that multiplies points[i].
+     * @param quadrature how closely the arc length is found.
      * @param points Points used to define spline
      */
-    public Segment(int n, Vector... points) {
-        if (points.length != n + 1) {
+    public Segment(int n, double[][] basis, Quadrature quadrature, Vector... points) {
+        if (points.length != n + 1 || basis.length != n + 1) {
             throw new IllegalArgumentException(
                     "Incorrect number of points for segment");
         }
+        this.quadrature = quadrature;
         this.points = new Vector[points.length];
         for (int i = 0; i < points.length; i++) {
             this.points[i] = points[i];
         }
+        // x(t) = Σk t^k * Σi basis[k][i] * points[i].x
+        cx = new double[n + 1];
+        cy = new double[n + 1];
+        for (int k = 0; k <= n; k++) {
+            for (int i = 0; i <= n; i++) {
+                cx[k] += basis[k][i] * points[i].x;
+                cy[k] += basis[k][i] * points[i].y;
+            }
+        }
+        dcx = derivative(cx);
+        dcy = derivative(cy);
+        ddcx = derivative(dcx);
+        ddcy = derivative(dcy);
+    }
+
+    /**
+     * @param c coefficients of a polynomial in power form.
+     * @return coefficients of its derivative (power rule).
+     */
+    private static double[] derivative(double[] c) {
+        double[] d = new double[Math.max(c.length - 1, 1)];
+        for (int k = 1; k < c.length; k++) {
+            d[k - 1] = k * c[k];
+        }
+        return d;
+    }
+
+    /**
+     * @param c coefficients of a polynomial in power form.
+     * @param t where to evaluate the polynomial.
+     * @return value of the polynomial using Horner's rule.
+     */
+    private static double horner(double[] c, double t) {
+        double r = c[c.length - 1];
+        for (int k = c.length - 2; k >= 0; k--) {
+            r = r * t + c[k];
+        }
+        return r;
     }
 
     /**
@@ -64,7 +132,9 @@ public abstract class Segment {
      *              indicates progression on curve.
      * @return point on the spline.
      */
-    public abstract Vector getCors(double alpha);
+    public Vector getCors(double alpha) {
+        return new Vector(horner(cx, alpha), horner(cy, alpha));
+    }
 
     /**
      * @param alpha spline parameter from [0, 1]
@@ -72,7 +142,9 @@ public abstract class Segment {
      * @return first derivative (slope) at point
      *              as (x, y) vector.
      */
-    public abstract Vector differentiate(double alpha);
+    public Vector differentiate(double alpha) {
+        return new Vector(horner(dcx, alpha), horner(dcy, alpha));
+    }
 
     /**
      * @param alpha spline parameter from [0, 1]
@@ -80,14 +152,203 @@ public abstract class Segment {
      * @return second derivative (slope of slope)
      *              as (x, y) vector.
      */
-    public abstract Vector differentiateS(double alpha);
+    public Vector differentiateS(double alpha) {
+        return new Vector(horner(ddcx, alpha), horner(ddcy, alpha));
+    }
 
     /**
+     * Fills in the position, first derivative and second derivative
+     * of a point without creating any objects.
+     * @param alpha spline parameter from [0, 1]
+     *              indicates progression on curve.
+     * @param out where to write the values.
+     */
+    protected void evaluateDerivatives(double alpha, SegmentState out) {
+        out.x = horner(cx, alpha);
+        out.y = horner(cy, alpha);
+        out.dx = horner(dcx, alpha);
+        out.dy = horner(dcy, alpha);
+        out.ddx = horner(ddcx, alpha);
+        out.ddy = horner(ddcy, alpha);
+    }
+
+    /**
+     * @param alpha spline parameter from [0, 1]
+     *              indicates progression on curve.
+     * @return magnitude of the first derivative at the point.
+     */
+    protected double speed(double alpha) {
+        double dx = horner(dcx, alpha);
+        double dy = horner(dcy, alpha);
+        return Math.sqrt(dx*dx + dy*dy);
+    }
+
+    /**
+     * @return arc length of the whole segment, found once and kept.
+     */
+    public double length() {
+        return pieces().length();
+    }
+
+    /**
+     * The segment is split into pieces the first time this is called (see
+     * Quadrature), after that a distance needs one Gauss-Legendre rule
+     * over part of a piece, and a distance from an end of the segment or
+     * of a piece needs none.
      * @param from point on curve.
      * @param to another point on curve.
      * @return arc length distance between points.
      */
-    public abstract double integrate(double from, double to);
+    public double integrate(double from, double to) {
+        Pieces p = pieces();
+        int a = p.find(from), b = p.find(to);
+        if (a == b && from != p.breaks[a] && to != p.breaks[a + 1]) return gauss(from, to);
+        return distance(p, b, to) - distance(p, a, from);
+    }
+
+    /**
+     * @param p the pieces of the segment.
+     * @param k the piece the point is on.
+     * @param alpha progression of the point.
+     * @return arc length from the start of the segment to the point.
+     */
+    private double distance(Pieces p, int k, double alpha) {
+        if (alpha == p.breaks[k]) return p.lengths[k];
+        if (alpha == p.breaks[k + 1]) return p.lengths[k + 1];
+        return p.lengths[k] + gauss(p.breaks[k], alpha);
+    }
+
+    private Pieces pieces() {
+        Pieces p = pieces;
+        if (p == null) {
+            // two threads may both split the segment, they get the same pieces
+            pieces = p = split(quadrature);
+        }
+        return p;
+    }
+
+    /**
+     * Splits the segment in half until the halves of every piece
+     * agree with the whole piece within the tolerance.
+     * @param quadrature how closely to find the length.
+     * @return the pieces, not kept by the segment.
+     */
+    Pieces split(Quadrature quadrature) {
+        Pieces p = new Pieces();
+        double whole = gauss(0.0, 1.0);
+        p.evaluations += Quadrature.POINTS;
+        split(p, 0.0, 1.0, whole, quadrature.tolerance(whole), 0);
+        return p;
+    }
+
+    /**
+     * @param p where the pieces are added.
+     * @param from start of the piece.
+     * @param to end of the piece.
+     * @param whole arc length of the piece found with one rule.
+     * @param tolerance largest error allowed for the piece, half
+     *                  of it is left for each half of the piece.
+     * @param depth how many times the segment has been split.
+     */
+    private void split(Pieces p, double from, double to, double whole, double tolerance, int depth) {
+        double mid = (from + to) / 2.0;
+        double left = gauss(from, mid), right = gauss(mid, to);
+        p.evaluations += 2 * Quadrature.POINTS;
+        if (depth >= Quadrature.MAX_DEPTH || Math.abs(left + right - whole) <= tolerance) {
+            p.add(mid, left);
+            p.add(to, right);
+        } else {
+            split(p, from, mid, left, tolerance / 2.0, depth + 1);
+            split(p, mid, to, right, tolerance / 2.0, depth + 1);
+        }
+    }
+
+    /**
+     * @param from point on curve.
+     * @param to another point on curve.
+     * @return arc length between the points from one Gauss-Legendre rule.
+     */
+    private double gauss(double from, double to) {
+        // ∫a,b f(x)dx = Σi=0,n Ci*f(xi), https://pomax.github.io/bezierinfo/#arclength
+        double half = (to - from) / 2.0, center = (to + from) / 2.0;
+        double sum = 0;
+        for (int i = 0; i < Quadrature.POINTS; i++) {
+            sum += Quadrature.WEIGHTS[i] * speed(half * Quadrature.ABSCISSA[i] + center);
+        }
+        return half * sum;
+    }
+
+    /**
+     * Pieces of a segment from its start to its end, with the arc length
+     * from the start of the segment to the start of each piece.
+     */
+    static final class Pieces {
+
+        /** Piece k goes from breaks[k] to breaks[k + 1]. */
+        private double[] breaks = new double[9];
+        /** Arc length from the start of the segment to breaks[k]. */
+        private double[] lengths = new double[9];
+        private int size;
+        /** Speeds evaluated to find the pieces. */
+        int evaluations;
+
+        /**
+         * @param end end of the next piece.
+         * @param length arc length of the piece.
+         */
+        private void add(double end, double length) {
+            if (size + 2 > breaks.length) {
+                breaks = Arrays.copyOf(breaks, breaks.length * 2);
+                lengths = Arrays.copyOf(lengths, lengths.length * 2);
+            }
+            size++;
+            breaks[size] = end;
+            lengths[size] = lengths[size - 1] + length;
+        }
+
+        /**
+         * @param alpha progression on the segment.
+         * @return the piece the point is on, the first or last piece
+         *         if it is before or after the segment.
+         */
+        private int find(double alpha) {
+            int lo = 0, hi = size - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (breaks[mid] <= alpha) lo = mid;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+
+        /**
+         * @return amount of pieces.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * @return arc length of the segment.
+         */
+        double length() {
+            return lengths[size];
+        }
+
+    }
+
+    /**
+     * Finds everything about a point in one pass.
+     * @param alpha spline parameter from [0, 1]
+     *              indicates progression on curve.
+     * @param out where to write the position, derivatives,
+     *            heading and curvature of the point.
+     */
+    public final void evaluate(double alpha, SegmentState out) {
+        evaluateDerivatives(alpha, out);
+        out.heading = heading(out.dx, out.dy);
+        out.curvature = curvature(out.dx, out.dy, out.ddx, out.ddy);
+    }
 
     /**
      * @param alpha spline parameter from [0, 1]
@@ -98,8 +359,28 @@ public abstract class Segment {
     public double curvature(double alpha) {
         Vector d = differentiate(alpha);
         Vector dd = differentiateS(alpha);
+        return curvature(d.x, d.y, dd.x, dd.y);
+    }
+
+    /**
+     * @param dx x component of the first derivative.
+     * @param dy y component of the first derivative.
+     * @param ddx x component of the second derivative.
+     * @param ddy y component of the second derivative.
+     * @return curvature (k) at the point.
+     */
+    public static double curvature(double dx, double dy, double ddx, double ddy) {
         // k = ( x'(t)*y''(t) - y'(t)*x''(t) ) / (x'(t)^2 + y'(t)^2)^1.5
-        return (d.x*dd.y - d.y*dd.x) / ( (d.x*d.x + d.y*d.y) * Math.sqrt(d.x*d.x + d.y*d.y) );
+        return (dx*ddy - dy*ddx) / ( (dx*dx + dy*dy) * Math.sqrt(dx*dx + dy*dy) );
+    }
+
+    /**
+     * @param dx x component of the first derivative.
+     * @param dy y component of the first derivative.
+     * @return heading in radians, it is counterclockwise.
+     */
+    public static double heading(double dx, double dy) {
+        return dx >= 0 ? Math.atan(dy / dx) : Math.PI + Math.atan(dy / dx);
     }
 
     /**
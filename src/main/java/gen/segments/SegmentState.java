@@ -0,0 +1,24 @@
+package gen.segments;
+
+/**
+ * SegmentState.java
+ *
+ * Everything about a single point on a segment, filled in by
+ * Segment.evaluate so that a caller can reuse one instance
+ * instead of creating vectors for every value.
+ */
+
+public class SegmentState {
+
+    /** Position on the curve. */
+    public double x, y;
+    /** First derivative (slope) at the point. */
+    public double dx, dy;
+    /** Second derivative (slope of slope) at the point. */
+    public double ddx, ddy;
+    /** Direction of the curve, it is counterclockwise and in radians. */
+    public double heading;
+    /** Curvature (k) at the point, same as angular velocity (w). */
+    public double curvature;
+
+}
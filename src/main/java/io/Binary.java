@@ -0,0 +1,129 @@
+package io;
+
+import gen.Trajectory;
+import gen.TrajectoryBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary.java
+ *
+ * A trajectory file that can be memory mapped and used without parsing.
+ * Everything is little-endian:
+ *   4 bytes  magic "PTRJ"
+ *   int      version
+ *   double   dt
+ *   int      point count
+ *   int      column count
+ *   for each column: 1 byte name length, then the name in UTF-8
+ *   zero padding up to a multiple of 8 bytes
+ *   every column one after another, point count doubles each
+ */
+
+public class Binary {
+
+    /** First bytes of every file, "PTRJ" read as a little-endian int. */
+    static final int MAGIC = 0x4a525450;
+    static final int VERSION = 1;
+
+    /** Names of the columns written by exportBinary, in order. */
+    public static final String[] COLUMNS = {"time", "x", "y", "distanceFromStart", "distanceFromEnd",
+            "velocity", "acceleration", "jerk", "heading", "curvature"};
+
+    /**
+     * @param file file to write.
+     * @param traj trajectory to write.
+     */
+    public static void exportBinary(File file, Trajectory traj) {
+        exportBinary(file, traj.getBuffer(), traj.dt);
+    }
+
+    /**
+     * @param file file to write.
+     * @param traj points to write.
+     * @param dt how far apart the points are in time.
+     */
+    public static void exportBinary(File file, TrajectoryBuffer traj, double dt) {
+        double[][] columns = {traj.time, traj.x, traj.y, traj.distanceFromStart, traj.distanceFromEnd,
+                traj.velocity, traj.acceleration, traj.jerk, traj.heading, traj.curvature};
+        int size = traj.size();
+        int header = headerSize(COLUMNS);
+        ByteBuffer buf = ByteBuffer.allocate(header + columns.length * size * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putDouble(dt).putInt(size).putInt(COLUMNS.length);
+        for (String name : COLUMNS) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            buf.put((byte) bytes.length).put(bytes);
+        }
+        buf.position(header);
+        for (double[] column : columns) {
+            buf.asDoubleBuffer().put(column, 0, size);
+            buf.position(buf.position() + size * Double.BYTES);
+        }
+        buf.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buf.hasRemaining()) channel.write(buf);
+        } catch (IOException io) {
+            System.out.println("invalid file!");
+        }
+    }
+
+    /**
+     * Maps a file into memory, the columns are read straight from the file.
+     * @param file file to read.
+     * @return the trajectory in the file, null if it can not be read.
+     */
+    public static MappedTrajectory importBinary(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.remaining() < 24 || buf.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a binary trajectory file");
+            }
+            int version = buf.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary trajectory version " + version);
+            }
+            double dt = buf.getDouble();
+            int size = buf.getInt();
+            String[] names = new String[buf.getInt()];
+            for (int c = 0; c < names.length; c++) {
+                byte[] bytes = new byte[buf.get() & 0xff];
+                buf.get(bytes);
+                names[c] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            int header = headerSize(names);
+            if (buf.capacity() < header + (long) names.length * size * Double.BYTES) {
+                throw new IllegalArgumentException("Binary trajectory file is cut short");
+            }
+            return new MappedTrajectory(buf, header, dt, size, names);
+        } catch (IOException io) {
+            System.out.println("invalid file");
+        }
+        return null;
+    }
+
+    /**
+     * @param names names of the columns.
+     * @return bytes before the first column.
+     */
+    private static int headerSize(String[] names) {
+        int size = 4 + 4 + 8 + 4 + 4;
+        for (String name : names) {
+            size += 1 + name.getBytes(StandardCharsets.UTF_8).length;
+        }
+        // keeps the columns aligned to doubles
+        return (size + 7) & ~7;
+    }
+
+}
@@ -1,43 +1,30 @@
 package io;
 
-import gen.Trajectory;
+import gen.PointIterator;
+import gen.TrajectoryBuffer;
 import gen.Waypoint;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Iterator;
 
 public class CSV {
 
     public static Waypoint[] importCSV(File csvData) {
+        TrajectoryBuffer traj = importColumns(csvData, CSVExporter.DEFAULT_COLUMNS);
+        return traj == null ? null : traj.toWaypoints().toArray(new Waypoint[0]);
+    }
+
+    /**
+     * Reads only some columns of a csv file, without making an object per row.
+     * @param csvData csv file with a header row.
+     * @param columns columns to read, the rest are left at zero.
+     * @return the points of the file in column form, null if it can not be read.
+     */
+    public static TrajectoryBuffer importColumns(File csvData, CSVExporter.Column... columns) {
         try {
-            CSVParser parser = CSVParser.parse(csvData, StandardCharsets.UTF_8, CSVFormat.DEFAULT);
-            List<CSVRecord> records = parser.getRecords();
-            Map<String, Integer> headerMap = parser.getHeaderMap();
-            int size = records.get(0).size();
-            Waypoint[] waypoints = new Waypoint[size];
-            int i = 0;
-            for (CSVRecord record : records) {
-                waypoints[i] = new Waypoint(getHead(record, "x", headerMap),
-                                            getHead(record, "y", headerMap),
-                                            getHead(record, "heading", headerMap));
-                waypoints[i].acceleration = getHead(record, "acceleration", headerMap);
-                waypoints[i].jerk = getHead(record, "jerk", headerMap);
-                waypoints[i].time = getHead(record, "time", headerMap);
-                waypoints[i].distanceFromStart = getHead(record, "distance", headerMap);
-                waypoints[i].velocity = getHead(record, "velocity", headerMap);
-                i++;
-            }
-            parser.close();
-            return waypoints;
+            return CSVImporter.read(csvData, columns);
         } catch (IOException io) {
             System.out.print("invalid file");
         }
@@ -45,24 +32,48 @@ public class CSV {
     }
 
     public static void exportCSV(File file, ArrayList<Waypoint> points) {
-        try {
-            CSVPrinter printer = new CSVPrinter(new FileWriter(file), CSVFormat.DEFAULT);
-            printer.printRecord("time", "x", "y", "distance", "velocity", "acceleration", "jerk", "heading");
-            for (Waypoint pt : points) {
-                printer.printRecord(pt.time, pt.x, pt.y, pt.distanceFromStart, pt.velocity, pt.acceleration, pt.jerk, Math.toDegrees(pt.heading));
-            }
-            printer.close();
-       } catch (IOException io) {
+        exportCSV(file, points.iterator(), CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+    }
+
+    /**
+     * @param file file to write.
+     * @param traj trajectory in column form.
+     * @param precision digits after the decimal point, or CSVExporter.SHORTEST.
+     * @param columns values to write for each point, in order.
+     */
+    public static void exportCSV(File file, TrajectoryBuffer traj, int precision, CSVExporter.Column... columns) {
+        try (CSVExporter exporter = new CSVExporter(file, precision, columns)) {
+            exporter.write(traj);
+        } catch (IOException io) {
             System.out.println("invalid file!");
         }
     }
 
-    private static double getHead(CSVRecord record, String header, Map<String, Integer> headerMap) {
-        int key = headerMap.get(header);
-        if (record.get(key) == null) {
-            return Double.NaN;
-        } else {
-            return Double.parseDouble(record.get(key));
+    /**
+     * @param file file to write.
+     * @param points points to write, made as they are written (see Trajectory.iterate).
+     * @param precision digits after the decimal point, or CSVExporter.SHORTEST.
+     * @param columns values to write for each point, in order.
+     */
+    public static void exportCSV(File file, PointIterator points, int precision, CSVExporter.Column... columns) {
+        try (CSVExporter exporter = new CSVExporter(file, precision, columns)) {
+            exporter.write(points);
+        } catch (IOException io) {
+            System.out.println("invalid file!");
+        }
+    }
+
+    /**
+     * @param file file to write.
+     * @param points points to write, they do not all need to be in memory.
+     * @param precision digits after the decimal point, or CSVExporter.SHORTEST.
+     * @param columns values to write for each point, in order.
+     */
+    public static void exportCSV(File file, Iterator<Waypoint> points, int precision, CSVExporter.Column... columns) {
+        try (CSVExporter exporter = new CSVExporter(file, precision, columns)) {
+            exporter.write(points);
+        } catch (IOException io) {
+            System.out.println("invalid file!");
         }
     }
 
@@ -0,0 +1,322 @@
+package io;
+
+import gen.PointIterator;
+import gen.PointSink;
+import gen.TrajectoryBuffer;
+import gen.Waypoint;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * CSVExporter.java
+ *
+ * Writes trajectories to a csv file one row at a time through a large
+ * buffer. Numbers are formatted straight into the buffer, no Strings
+ * or boxed doubles are made for each value.
+ */
+
+public class CSVExporter implements Closeable {
+
+    /** Precision that writes the fewest digits that still read back as the same double. */
+    public static final int SHORTEST = -1;
+    /** Columns written by CSV.exportCSV and read by CSV.importCSV. */
+    public static final Column[] DEFAULT_COLUMNS = {Column.TIME, Column.X, Column.Y, Column.DISTANCE,
+            Column.VELOCITY, Column.ACCELERATION, Column.JERK, Column.HEADING};
+
+    /** Bytes written to the file at a time. */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Room left for one value, longer than any number written. */
+    private static final int MAX_VALUE_LENGTH = 32;
+    /** Exact powers of ten that fit in a double. */
+    private static final double[] POW10 = new double[19];
+    /** Largest long a double can hold exactly. */
+    private static final double MAX_EXACT = 1L << 53;
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    /** A value that can be written for each point. */
+    public enum Column {
+
+        TIME("time"), X("x"), Y("y"), DISTANCE("distance"), DISTANCE_FROM_END("distanceFromEnd"),
+        VELOCITY("velocity"), ACCELERATION("acceleration"), JERK("jerk"),
+        /** Heading in degrees. */
+        HEADING("heading"), CURVATURE("curvature");
+
+        private final String header;
+
+        /**
+         * @param header name of the column in the first row of the file.
+         */
+        Column(String header) {
+            this.header = header;
+        }
+
+        public String getHeader() {
+            return header;
+        }
+
+        /**
+         * @param traj trajectory in column form.
+         * @param i index of the point.
+         * @return the value of the point for this column.
+         */
+        public double get(TrajectoryBuffer traj, int i) {
+            switch (this) {
+                case TIME: return traj.time[i];
+                case X: return traj.x[i];
+                case Y: return traj.y[i];
+                case DISTANCE: return traj.distanceFromStart[i];
+                case DISTANCE_FROM_END: return traj.distanceFromEnd[i];
+                case VELOCITY: return traj.velocity[i];
+                case ACCELERATION: return traj.acceleration[i];
+                case JERK: return traj.jerk[i];
+                case HEADING: return Math.toDegrees(traj.heading[i]);
+                default: return traj.curvature[i];
+            }
+        }
+
+        /**
+         * @param traj trajectory in column form.
+         * @param i index of the point.
+         * @param value the value of the point for this column, as written in the file.
+         */
+        public void set(TrajectoryBuffer traj, int i, double value) {
+            switch (this) {
+                case TIME: traj.time[i] = value; break;
+                case X: traj.x[i] = value; break;
+                case Y: traj.y[i] = value; break;
+                case DISTANCE: traj.distanceFromStart[i] = value; break;
+                case DISTANCE_FROM_END: traj.distanceFromEnd[i] = value; break;
+                case VELOCITY: traj.velocity[i] = value; break;
+                case ACCELERATION: traj.acceleration[i] = value; break;
+                case JERK: traj.jerk[i] = value; break;
+                case HEADING: traj.heading[i] = Math.toRadians(value); break;
+                default: traj.curvature[i] = value; break;
+            }
+        }
+
+        /**
+         * @param wp a point.
+         * @return the value of the point for this column.
+         */
+        public double get(Waypoint wp) {
+            switch (this) {
+                case TIME: return wp.time;
+                case X: return wp.x;
+                case Y: return wp.y;
+                case DISTANCE: return wp.distanceFromStart;
+                case DISTANCE_FROM_END: return wp.distanceFromEnd;
+                case VELOCITY: return wp.velocity;
+                case ACCELERATION: return wp.acceleration;
+                case JERK: return wp.jerk;
+                case HEADING: return Math.toDegrees(wp.heading);
+                default: return wp.curvature;
+            }
+        }
+
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buf;
+    /** The backing array of buf, values are formatted straight into it. */
+    private final byte[] bytes;
+    private final int precision;
+    private final Column[] columns;
+    /** Reused for values that can not be written as m / 10^p,
+     *  appending a double to it does not make a String. */
+    private final StringBuilder scratch = new StringBuilder(MAX_VALUE_LENGTH);
+
+    /**
+     * Opens the file and writes the header row.
+     * @param file file to write, replaced if it exists.
+     * @param precision digits after the decimal point, or SHORTEST.
+     * @param columns values to write for each point, in order.
+     */
+    public CSVExporter(File file, int precision, Column... columns) throws IOException {
+        if (precision < SHORTEST || precision >= POW10.length) {
+            throw new IllegalArgumentException("Precision must be SHORTEST or between 0 and " + (POW10.length - 1));
+        }
+        this.precision = precision;
+        this.columns = columns.clone();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buf = ByteBuffer.allocate(BUFFER_SIZE);
+        bytes = buf.array();
+        for (int c = 0; c < columns.length; c++) {
+            if (c > 0) put((byte) ',');
+            writeAscii(columns[c].getHeader());
+        }
+        endRow();
+    }
+
+    /**
+     * @param traj every point of it is written.
+     */
+    public void write(TrajectoryBuffer traj) throws IOException {
+        for (int i = 0; i < traj.size(); i++) {
+            for (int c = 0; c < columns.length; c++) {
+                if (c > 0) put((byte) ',');
+                writeDouble(columns[c].get(traj, i));
+            }
+            endRow();
+        }
+    }
+
+    /**
+     * @param wp point to write.
+     */
+    public void write(Waypoint wp) throws IOException {
+        for (int c = 0; c < columns.length; c++) {
+            if (c > 0) put((byte) ',');
+            writeDouble(columns[c].get(wp));
+        }
+        endRow();
+    }
+
+    /**
+     * @param points every point left in it is written, as it is made.
+     */
+    public void write(PointIterator points) throws IOException {
+        Waypoint wp = new Waypoint(0, 0, 0);
+        while (points.next(wp)) {
+            write(wp);
+        }
+    }
+
+    /**
+     * @return a sink that writes every point it gets, an IOException
+     *         while writing is thrown as an UncheckedIOException.
+     */
+    public PointSink sink() {
+        return wp -> {
+            try {
+                write(wp);
+            } catch (IOException io) {
+                throw new UncheckedIOException(io);
+            }
+        };
+    }
+
+    /**
+     * @param points every point left in it is written, they do not all need to be in memory.
+     */
+    public void write(Iterator<Waypoint> points) throws IOException {
+        while (points.hasNext()) {
+            write(points.next());
+        }
+    }
+
+    /**
+     * Writes whatever is left in the buffer and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void endRow() throws IOException {
+        // same line ending as commons-csv's default format
+        put((byte) '\r');
+        put((byte) '\n');
+        if (buf.remaining() < BUFFER_SIZE / 2) flush();
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) channel.write(buf);
+        buf.clear();
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buf.hasRemaining()) flush();
+        buf.put(b);
+    }
+
+    private void writeAscii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            put((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * @param v value to write with the exporter's precision.
+     */
+    private void writeDouble(double v) throws IOException {
+        if (buf.remaining() < MAX_VALUE_LENGTH) flush();
+        double abs = Math.abs(v);
+        if (precision == SHORTEST) {
+            if (v == 0) {
+                put((byte) '0');
+                return;
+            }
+            // the fewest digits after the point that divide back into exactly
+            // the same double, m and 10^p are both exact so the division
+            // rounds the same way parsing the written text does
+            for (int p = 0; p < POW10.length && abs * POW10[p] < MAX_EXACT; p++) {
+                long m = Math.round(abs * POW10[p]);
+                if (m / POW10[p] == abs) {
+                    writeFixed(v < 0, m, p);
+                    return;
+                }
+            }
+        } else if (abs * POW10[precision] < MAX_EXACT) {
+            writeFixed(v < 0, Math.round(abs * POW10[precision]), precision);
+            return;
+        }
+        // too many digits, too big, too small, NaN or infinite
+        scratch.setLength(0);
+        scratch.append(v);
+        for (int i = 0; i < scratch.length(); i++) {
+            put((byte) scratch.charAt(i));
+        }
+    }
+
+    /**
+     * Writes m / 10^p.
+     * @param negative whether to write a minus sign.
+     * @param m the digits of the value.
+     * @param p how many of the digits go after the decimal point.
+     */
+    private void writeFixed(boolean negative, long m, int p) {
+        int pos = buf.position();
+        if (negative && m != 0) bytes[pos++] = '-';
+        // digits are written from the last one backwards
+        int digits = Math.max(digitCount(m), p + 1);
+        int end = pos + digits + (p > 0 ? 1 : 0);
+        int i = end;
+        for (int d = 0; d < digits; d++) {
+            if (d == p && p > 0) bytes[--i] = '.';
+            bytes[--i] = (byte) ('0' + m % 10);
+            m /= 10;
+        }
+        buf.position(end);
+    }
+
+    /**
+     * @param m a non negative number.
+     * @return how many digits it has.
+     */
+    private static int digitCount(long m) {
+        int count = 1;
+        while (m >= 10) {
+            m /= 10;
+            count++;
+        }
+        return count;
+    }
+
+}
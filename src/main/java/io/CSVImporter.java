@@ -0,0 +1,205 @@
+package io;
+
+import gen.TrajectoryBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSVImporter.java
+ *
+ * Reads csv files written by CSVExporter (or anything with the same
+ * headers) by memory mapping them and parsing the wanted columns straight
+ * into a TrajectoryBuffer in one pass. Columns that are not wanted are
+ * skipped without being parsed.
+ */
+
+public class CSVImporter {
+
+    /** Powers of ten a double holds exactly. */
+    private static final double[] POW10 = new double[23];
+    /** Largest long a double can hold exactly. */
+    private static final long MAX_EXACT = 1L << 53;
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) POW10[i] = POW10[i - 1] * 10;
+    }
+
+    /**
+     * @param file csv file with a header row.
+     * @param columns columns to read, other columns of the file are skipped
+     *                and columns missing from the file are left at zero.
+     * @return the points of the file in column form.
+     */
+    public static TrajectoryBuffer read(File file, CSVExporter.Column... columns) throws IOException {
+        MappedByteBuffer buf;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("File is too big to map: " + file);
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int end = buf.limit();
+
+        // the header says which field of a row goes to which column
+        List<CSVExporter.Column> projection = new ArrayList<>();
+        int pos = 0;
+        while (pos < end && !isLineEnd(buf.get(pos))) {
+            int fieldEnd = fieldEnd(buf, pos, end);
+            String header = unquote(ascii(buf, pos, fieldEnd).trim());
+            CSVExporter.Column match = null;
+            for (CSVExporter.Column column : columns) {
+                if (column.getHeader().equals(header)) match = column;
+            }
+            projection.add(match);
+            pos = fieldEnd < end && buf.get(fieldEnd) == ',' ? fieldEnd + 1 : fieldEnd;
+        }
+        CSVExporter.Column[] fields = projection.toArray(new CSVExporter.Column[0]);
+
+        // about 12 bytes per value is a guess at the amount of rows, the buffer grows if it is too low
+        TrajectoryBuffer traj = new TrajectoryBuffer(end / Math.max(12 * fields.length, 1) + 1);
+        while (pos < end) {
+            // skips the end of the last line and any blank lines
+            if (isLineEnd(buf.get(pos))) {
+                pos++;
+                continue;
+            }
+            int row = traj.add();
+            int field = 0;
+            while (true) {
+                int fieldEnd = fieldEnd(buf, pos, end);
+                if (field < fields.length && fields[field] != null) {
+                    fields[field].set(traj, row, parseDouble(buf, pos, fieldEnd));
+                }
+                field++;
+                pos = fieldEnd;
+                if (pos >= end || buf.get(pos) != ',') break;
+                pos++;
+            }
+        }
+        return traj;
+    }
+
+    /**
+     * @return whether the byte ends a line.
+     */
+    private static boolean isLineEnd(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /**
+     * @param buf the file.
+     * @param pos start of the field.
+     * @param end end of the file.
+     * @return index of the comma or line end after the field.
+     */
+    private static int fieldEnd(MappedByteBuffer buf, int pos, int end) {
+        while (pos < end) {
+            byte b = buf.get(pos);
+            if (b == ',' || isLineEnd(b)) break;
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Parses a number without making a String when it has at most
+     * 15 significant digits and a small exponent, these are the
+     * numbers a double can find exactly with one multiply or divide.
+     * Anything else is handed to Double.parseDouble.
+     * @param buf the file.
+     * @param start first byte of the field.
+     * @param end index after the last byte of the field.
+     * @return the value of the field, NaN if it is empty.
+     */
+    static double parseDouble(MappedByteBuffer buf, int start, int end) {
+        while (start < end && buf.get(start) == ' ') start++;
+        while (end > start && buf.get(end - 1) == ' ') end--;
+        if (end - start >= 2 && buf.get(start) == '"' && buf.get(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        if (start == end) return Double.NaN;
+
+        int i = start;
+        boolean negative = buf.get(i) == '-';
+        if (negative || buf.get(i) == '+') i++;
+        long m = 0;
+        int digits = 0, scale = 0, exp = 0;
+        boolean point = false, any = false;
+        for (; i < end; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                any = true;
+                if (m == 0 && b == '0') {
+                    // leading zeros are not significant
+                    if (point) scale++;
+                    continue;
+                }
+                if (digits == 18) return slowParse(buf, start, end);
+                m = m * 10 + (b - '0');
+                digits++;
+                if (point) scale++;
+            } else if (b == '.' && !point) {
+                point = true;
+            } else if ((b == 'e' || b == 'E') && any) {
+                i++;
+                boolean negativeExp = i < end && buf.get(i) == '-';
+                if (i < end && (negativeExp || buf.get(i) == '+')) i++;
+                if (i == end) return slowParse(buf, start, end);
+                for (; i < end; i++) {
+                    b = buf.get(i);
+                    if (b < '0' || b > '9' || exp > 1000) return slowParse(buf, start, end);
+                    exp = exp * 10 + (b - '0');
+                }
+                if (negativeExp) exp = -exp;
+                break;
+            } else {
+                return slowParse(buf, start, end);
+            }
+        }
+        if (!any) return slowParse(buf, start, end);
+
+        double value;
+        int e = exp - scale;
+        if (m == 0) value = 0;
+        else if (m < MAX_EXACT && e >= 0 && e < POW10.length) value = m * POW10[e];
+        else if (m < MAX_EXACT && e < 0 && -e < POW10.length) value = m / POW10[-e];
+        else return slowParse(buf, start, end);
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return the field parsed by Double.parseDouble.
+     */
+    private static double slowParse(MappedByteBuffer buf, int start, int end) {
+        try {
+            return Double.parseDouble(ascii(buf, start, end));
+        } catch (NumberFormatException n) {
+            throw new NumberFormatException("not a number: " + ascii(buf, start, end));
+        }
+    }
+
+    /**
+     * @return the bytes between start and end as a String.
+     */
+    private static String ascii(MappedByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = buf.get(start + i);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return s without the quotes around it.
+     */
+    private static String unquote(String s) {
+        return s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"") ? s.substring(1, s.length() - 1) : s;
+    }
+
+}
@@ -0,0 +1,267 @@
+package io;
+
+import gen.Trajectory;
+import gen.TrajectoryBuffer;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact.java
+ *
+ * A small trajectory file for keeping many trajectories in the repo or on
+ * the robot, about a tenth of the size of the csv file. Each column is
+ * stored as whole steps (fixed point), so a value is off by at most half
+ * a step, and the steps are written as differences between points (or
+ * differences of differences), which are small numbers on a smooth
+ * trajectory. The largest error of each column is kept in the file.
+ *
+ * Everything is little-endian:
+ *   4 bytes  magic "PTRC"
+ *   int      version
+ *   double   dt
+ *   int      point count
+ *   int      column count
+ *   for each column: 1 byte name length, the csv header of the column in
+ *   UTF-8, 1 byte order, double step, double largest error, int byte count
+ *   every column one after another
+ *
+ * A column of order 0 is a float for each point. Otherwise each value is
+ * divided by the step and rounded, the differences between points are taken
+ * order times (the values before the first point count as zero) and each
+ * difference is written as a zigzag varint: 7 bits a byte, low bits first,
+ * the high bit set on every byte but the last.
+ */
+
+public class Compact {
+
+    /** First bytes of every file, "PTRC" read as a little-endian int. */
+    static final int MAGIC = 0x43525450;
+    static final int VERSION = 1;
+
+    /** Steps that need more bits than a double has are not exact, those columns are written as floats. */
+    private static final double MAX_STEPS = 1L << 52;
+
+    /** How a column is stored. */
+    public static class Encoding {
+
+        public final CSVExporter.Column column;
+        /** Size of a step, 0 for floats. */
+        public final double step;
+        /** Times differences are taken, 0 for floats. */
+        public final int order;
+
+        private Encoding(CSVExporter.Column column, double step, int order) {
+            this.column = column;
+            this.step = step;
+            this.order = order;
+        }
+
+        /**
+         * @param column the column.
+         * @return the column as a float for each point.
+         */
+        public static Encoding floats(CSVExporter.Column column) {
+            return new Encoding(column, 0, 0);
+        }
+
+        /**
+         * @param column the column.
+         * @param step values are rounded to whole steps, in the units
+         *             of the csv column (heading is in degrees).
+         * @param order 1 to write the change from the last point, 2 to write
+         *              the change of the change (for columns that change
+         *              at a steady rate, like time and distance).
+         * @return the column in fixed point.
+         */
+        public static Encoding fixed(CSVExporter.Column column, double step, int order) {
+            if (!(step > 0)) throw new IllegalArgumentException("Step must be positive");
+            if (order < 1 || order > 2) throw new IllegalArgumentException("Order must be 1 or 2");
+            return new Encoding(column, step, order);
+        }
+
+    }
+
+    /** The columns of CSVExporter.DEFAULT_COLUMNS, every value within 5e-6 of the original. */
+    public static final Encoding[] DEFAULT_ENCODINGS = {
+            Encoding.fixed(CSVExporter.Column.TIME, 1e-5, 2),
+            Encoding.fixed(CSVExporter.Column.X, 1e-5, 2),
+            Encoding.fixed(CSVExporter.Column.Y, 1e-5, 2),
+            Encoding.fixed(CSVExporter.Column.DISTANCE, 1e-5, 2),
+            Encoding.fixed(CSVExporter.Column.VELOCITY, 1e-5, 2),
+            Encoding.fixed(CSVExporter.Column.ACCELERATION, 1e-5, 1),
+            Encoding.fixed(CSVExporter.Column.JERK, 1e-5, 1),
+            Encoding.fixed(CSVExporter.Column.HEADING, 1e-5, 2)
+    };
+
+    /**
+     * @param file file to write.
+     * @param traj trajectory to write.
+     * @return the largest error of each column of DEFAULT_ENCODINGS,
+     *         null if the file could not be written.
+     */
+    public static double[] exportCompact(File file, Trajectory traj) {
+        return exportCompact(file, traj.getBuffer(), traj.dt, DEFAULT_ENCODINGS);
+    }
+
+    /**
+     * @param file file to write.
+     * @param traj points to write.
+     * @param dt how far apart the points are in time.
+     * @param encodings columns to write and how.
+     * @return the largest error of each column, null if the file could not be written.
+     */
+    public static double[] exportCompact(File file, TrajectoryBuffer traj, double dt, Encoding... encodings) {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            return write(out, traj, dt, encodings);
+        } catch (IOException io) {
+            System.out.println("invalid file!");
+        }
+        return null;
+    }
+
+    /**
+     * Reads every column of a file.
+     * @param file file to read.
+     * @return the points of the file, null if it can not be read.
+     */
+    public static TrajectoryBuffer importCompact(File file) {
+        try (CompactReader reader = new CompactReader(file)) {
+            return reader.read();
+        } catch (IOException io) {
+            System.out.println("invalid file");
+        }
+        return null;
+    }
+
+    /**
+     * Writes a trajectory to a stream, for sending it somewhere else than a file.
+     * @param out where to write, it is not closed.
+     * @param traj points to write.
+     * @param dt how far apart the points are in time.
+     * @param encodings columns to write and how.
+     * @return the largest error of each column. A fixed point column with values
+     *         too big for its step (or not finite) is written as floats instead.
+     */
+    public static double[] write(OutputStream out, TrajectoryBuffer traj, double dt, Encoding... encodings) throws IOException {
+        int size = traj.size();
+        Bytes[] columns = new Bytes[encodings.length];
+        int[] orders = new int[encodings.length];
+        double[] errors = new double[encodings.length];
+        int header = 4 + 4 + 8 + 4 + 4;
+        for (int c = 0; c < encodings.length; c++) {
+            Encoding encoding = encodings[c];
+            columns[c] = new Bytes(size * (encoding.order == 0 ? Float.BYTES : 2) + 16);
+            orders[c] = encoding.order;
+            if (encoding.order == 0 || !fits(traj, encoding)) {
+                orders[c] = 0;
+                errors[c] = writeFloats(traj, encoding.column, columns[c]);
+            } else {
+                errors[c] = writeFixed(traj, encoding, columns[c]);
+            }
+            header += 1 + encoding.column.getHeader().getBytes(StandardCharsets.UTF_8).length + 1 + 8 + 8 + 4;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putDouble(dt).putInt(size).putInt(encodings.length);
+        for (int c = 0; c < encodings.length; c++) {
+            byte[] name = encodings[c].column.getHeader().getBytes(StandardCharsets.UTF_8);
+            buf.put((byte) name.length).put(name).put((byte) orders[c]);
+            buf.putDouble(orders[c] == 0 ? 0 : encodings[c].step).putDouble(errors[c]).putInt(columns[c].size);
+        }
+        out.write(buf.array(), 0, buf.position());
+        for (Bytes column : columns) {
+            out.write(column.bytes, 0, column.size);
+        }
+        out.flush();
+        return errors;
+    }
+
+    /**
+     * @return whether every value of the column is a finite amount of steps a double holds exactly.
+     */
+    private static boolean fits(TrajectoryBuffer traj, Encoding encoding) {
+        for (int i = 0; i < traj.size(); i++) {
+            if (!(Math.abs(encoding.column.get(traj, i) / encoding.step) < MAX_STEPS)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the largest difference between a value and its float.
+     */
+    private static double writeFloats(TrajectoryBuffer traj, CSVExporter.Column column, Bytes out) {
+        double error = 0;
+        for (int i = 0; i < traj.size(); i++) {
+            double value = column.get(traj, i);
+            float f = (float) value;
+            out.putInt(Float.floatToRawIntBits(f));
+            // infinities and NaN are kept as they are
+            if (value != f && !Double.isNaN(value)) error = Math.max(error, Math.abs(value - f));
+        }
+        return error;
+    }
+
+    /**
+     * @return the largest difference between a value and its rounded steps.
+     */
+    private static double writeFixed(TrajectoryBuffer traj, Encoding encoding, Bytes out) {
+        double error = 0;
+        // last[k] is the k-th difference at the last point
+        long[] last = new long[encoding.order];
+        for (int i = 0; i < traj.size(); i++) {
+            double value = encoding.column.get(traj, i);
+            long steps = Math.round(value / encoding.step);
+            error = Math.max(error, Math.abs(value - steps * encoding.step));
+            long d = steps;
+            for (int k = 0; k < last.length; k++) {
+                long next = d - last[k];
+                last[k] = d;
+                d = next;
+            }
+            out.putVarint((d << 1) ^ (d >> 63));
+        }
+        return error;
+    }
+
+    /** A growing array of bytes. */
+    private static class Bytes {
+
+        private byte[] bytes;
+        private int size;
+
+        private Bytes(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        private void ensure(int more) {
+            if (size + more > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+        }
+
+        private void putInt(int v) {
+            ensure(4);
+            bytes[size++] = (byte) v;
+            bytes[size++] = (byte) (v >>> 8);
+            bytes[size++] = (byte) (v >>> 16);
+            bytes[size++] = (byte) (v >>> 24);
+        }
+
+        private void putVarint(long v) {
+            ensure(10);
+            while ((v & ~0x7fL) != 0) {
+                bytes[size++] = (byte) (v | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+        }
+
+    }
+
+}
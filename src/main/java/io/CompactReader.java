@@ -0,0 +1,251 @@
+package io;
+
+import gen.TrajectoryBuffer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CompactReader.java
+ *
+ * Reads a file written by Compact one column at a time, decoding straight
+ * from a small buffer into arrays of doubles. Nothing is made for each
+ * point and the whole file is never in memory, so it also reads
+ * trajectories sent over a stream.
+ */
+
+public class CompactReader implements Closeable {
+
+    private final InputStream in;
+    private final byte[] buf = new byte[1 << 16];
+    private int pos, limit;
+    /** Bytes of the stream before buf. */
+    private long offset;
+
+    /** How far apart the points are in time. */
+    public final double dt;
+    private final int size;
+    /** Names of the columns, and the column each name belongs to (null if it is not a known column). */
+    private final String[] names;
+    private final CSVExporter.Column[] columns;
+    private final int[] orders, lengths;
+    private final double[] steps, errors;
+    /** Index of the next column in the stream. */
+    private int next;
+
+    /**
+     * @param file file to read.
+     */
+    public CompactReader(File file) throws IOException {
+        this(new FileInputStream(file));
+    }
+
+    /**
+     * Reads the header.
+     * @param in the stream, closed with the reader or when the header can not be read.
+     */
+    public CompactReader(InputStream in) throws IOException {
+        this.in = in;
+        try {
+            if (readInt() != Compact.MAGIC) {
+                throw new IOException("Not a compact trajectory file");
+            }
+            int version = readInt();
+            if (version != Compact.VERSION) {
+                throw new IOException("Unsupported compact trajectory version " + version);
+            }
+            dt = Double.longBitsToDouble(readLong());
+            size = readInt();
+            int count = readInt();
+            if (size < 0 || count < 0) throw new IOException("Compact trajectory file is corrupt");
+            names = new String[count];
+            columns = new CSVExporter.Column[count];
+            orders = new int[count];
+            lengths = new int[count];
+            steps = new double[count];
+            errors = new double[count];
+            for (int c = 0; c < count; c++) {
+                byte[] name = new byte[readByte() & 0xff];
+                for (int b = 0; b < name.length; b++) name[b] = readByte();
+                names[c] = new String(name, StandardCharsets.UTF_8);
+                for (CSVExporter.Column column : CSVExporter.Column.values()) {
+                    if (column.getHeader().equals(names[c])) columns[c] = column;
+                }
+                orders[c] = readByte();
+                steps[c] = Double.longBitsToDouble(readLong());
+                errors[c] = Double.longBitsToDouble(readLong());
+                lengths[c] = readInt();
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the amount of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the columns in the order they are stored, null for columns this version does not know.
+     */
+    public CSVExporter.Column[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * @return the largest difference between a value in the file and the
+     *         value that was written, for each column in the order they are stored.
+     */
+    public double[] getMaxErrors() {
+        return errors.clone();
+    }
+
+    /**
+     * @return the column readColumn reads next, null if it is not
+     *         a known column or every column has been read.
+     */
+    public CSVExporter.Column nextColumn() {
+        return next < columns.length ? columns[next] : null;
+    }
+
+    /**
+     * @return whether there are columns left to read or skip.
+     */
+    public boolean hasNextColumn() {
+        return next < columns.length;
+    }
+
+    /**
+     * Decodes the next column.
+     * @param into where the values are written, in the units of the csv column
+     *             (heading is in degrees), at least size() long.
+     */
+    public void readColumn(double[] into) throws IOException {
+        int c = next++;
+        long end = offset + pos + lengths[c];
+        if (orders[c] == 0) {
+            for (int i = 0; i < size; i++) into[i] = Float.intBitsToFloat(readInt());
+        } else {
+            double step = steps[c];
+            long[] last = new long[orders[c]];
+            for (int i = 0; i < size; i++) {
+                long z = readVarint();
+                long d = (z >>> 1) ^ -(z & 1);
+                for (int k = last.length - 1; k >= 0; k--) {
+                    last[k] += d;
+                    d = last[k];
+                }
+                into[i] = d * step;
+            }
+        }
+        if (offset + pos != end) {
+            throw new IOException("Column " + names[c] + " of the compact trajectory file is corrupt");
+        }
+    }
+
+    /**
+     * Moves past the next column without decoding it.
+     */
+    public void skipColumn() throws IOException {
+        long skip = lengths[next++];
+        while (skip > 0) {
+            if (pos == limit) fill();
+            int n = (int) Math.min(skip, limit - pos);
+            pos += n;
+            skip -= n;
+        }
+    }
+
+    /**
+     * Reads every column left into a new buffer, columns it
+     * does not know are skipped and columns missing are left at zero.
+     * @return the points.
+     */
+    public TrajectoryBuffer read() throws IOException {
+        TrajectoryBuffer traj = new TrajectoryBuffer(size);
+        traj.setSize(size);
+        while (hasNextColumn()) {
+            CSVExporter.Column column = nextColumn();
+            if (column == null) {
+                skipColumn();
+                continue;
+            }
+            double[] into = array(traj, column);
+            readColumn(into);
+            if (column == CSVExporter.Column.HEADING) {
+                for (int i = 0; i < size; i++) into[i] = Math.toRadians(into[i]);
+            }
+        }
+        return traj;
+    }
+
+    /**
+     * @return the array of the buffer a column is read into.
+     */
+    private static double[] array(TrajectoryBuffer traj, CSVExporter.Column column) {
+        switch (column) {
+            case TIME: return traj.time;
+            case X: return traj.x;
+            case Y: return traj.y;
+            case DISTANCE: return traj.distanceFromStart;
+            case DISTANCE_FROM_END: return traj.distanceFromEnd;
+            case VELOCITY: return traj.velocity;
+            case ACCELERATION: return traj.acceleration;
+            case JERK: return traj.jerk;
+            case HEADING: return traj.heading;
+            default: return traj.curvature;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = 0;
+        int n = in.read(buf);
+        if (n <= 0) throw new EOFException("Compact trajectory file is cut short");
+        limit = n;
+    }
+
+    private byte readByte() throws IOException {
+        if (pos == limit) fill();
+        return buf[pos++];
+    }
+
+    private int readInt() throws IOException {
+        if (limit - pos >= 4) {
+            int v = (buf[pos] & 0xff) | (buf[pos + 1] & 0xff) << 8 | (buf[pos + 2] & 0xff) << 16 | buf[pos + 3] << 24;
+            pos += 4;
+            return v;
+        }
+        return (readByte() & 0xff) | (readByte() & 0xff) << 8 | (readByte() & 0xff) << 16 | readByte() << 24;
+    }
+
+    private long readLong() throws IOException {
+        return (readInt() & 0xffffffffL) | (long) readInt() << 32;
+    }
+
+    private long readVarint() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = pos < limit ? buf[pos++] : readByte();
+            v |= (long) (b & 0x7f) << shift;
+            if (b >= 0) return v;
+        }
+        throw new IOException("Compact trajectory file is corrupt");
+    }
+
+}
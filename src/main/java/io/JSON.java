@@ -13,12 +13,56 @@ import java.io.FileWriter;
 
 public class JSON {
 
+    /**
+     * Everything a saved path is generated from.
+     */
+    public static class Spec {
+
+        public final Trajectory.FitMethod method;
+        public final double dt;
+        /** Wheel base width, NaN if the file does not have one. */
+        public final double width;
+        public final double velocity, acceleration, jerk;
+        public final double tightness;
+        public final Waypoint[] waypoints;
+
+        private Spec(Trajectory.FitMethod method, double dt, double width, double velocity,
+                     double acceleration, double jerk, double tightness, Waypoint[] waypoints) {
+            this.method = method;
+            this.dt = dt;
+            this.width = width;
+            this.velocity = velocity;
+            this.acceleration = acceleration;
+            this.jerk = jerk;
+            this.tightness = tightness;
+            this.waypoints = waypoints;
+        }
+
+        /**
+         * @param sampleRate how many points per segment to use to sample curve.
+         * @return the center trajectory of the path.
+         */
+        public Trajectory generate(int sampleRate) {
+            return new Trajectory(method, sampleRate, tightness, dt, velocity, acceleration, jerk, waypoints);
+        }
+
+    }
+
     public static void save(Trajectory traj, File file) {
+        save(traj, Double.NaN, file);
+    }
+
+    /**
+     * @param traj trajectory to save the settings and waypoints of.
+     * @param width wheel base width, not saved if NaN.
+     * @param file file to write.
+     */
+    public static void save(Trajectory traj, double width, File file) {
         try (FileWriter writer = new FileWriter(file)) {
             JSONObject root = new JSONObject();
             root.put("spline", traj.method.toString());
             root.put("dt", traj.dt);
-            //root.put("width", traj.wheelBaseWidth);
+            if (!Double.isNaN(width)) root.put("width", width);
             root.put("velocity", traj.maxVelocity);
             root.put("acceleration", traj.maxAcceleration);
             root.put("jerk", traj.maxJerk);
@@ -39,38 +83,53 @@ public class JSON {
         }
     }
 
-    //TODO: figure out what to do with this
     public static Trajectory load(File file) {
+        Spec spec = loadSpec(file);
+        return spec == null ? null : spec.generate(Trajectory.SampleRate.HIGH.getRate());
+    }
+
+    /**
+     * @param file a file written by save.
+     * @return the settings and waypoints in the file, null if it can not be read.
+     */
+    public static Spec loadSpec(File file) {
         String ext = FilenameUtils.getExtension(file.getName());
-        if (ext.toLowerCase().equals("json")) {
+        if (!ext.toLowerCase().equals("json")) {
             throw new IllegalArgumentException("Not a json file");
         }
-        Trajectory traj = null;
         try (FileReader reader = new FileReader(file)) {
             JSONParser parser = new JSONParser();
             JSONObject root = (JSONObject) parser.parse(reader);
             Trajectory.FitMethod method = Trajectory.FitMethod.findMethod((String) root.get("spline"));
-            double dt = Double.parseDouble((String) root.get("dt"));
-            double width = Double.parseDouble((String) root.get("width"));
-            double velocity = Double.parseDouble((String) root.get("velocity"));
-            double acceleration = Double.parseDouble((String) root.get("acceleration"));
-            double jerk = Double.parseDouble((String) root.get("jerk"));
-            double tightness = Double.parseDouble((String) root.get("tightness"));
+            double dt = number(root.get("dt"));
+            double width = root.containsKey("width") ? number(root.get("width")) : Double.NaN;
+            double velocity = number(root.get("velocity"));
+            double acceleration = number(root.get("acceleration"));
+            double jerk = number(root.get("jerk"));
+            double tightness = number(root.get("tightness"));
             JSONArray wps = (JSONArray) root.get("waypoints");
             Waypoint[] waypoints = new Waypoint[wps.size()];
             for (int i = 0; i < wps.size(); i++) {
                 JSONArray jp = (JSONArray) wps.get(i);
-                double x = Double.parseDouble((String) jp.get(0));
-                double y = Double.parseDouble((String) jp.get(1));
-                double h = Double.parseDouble((String) jp.get(2));
+                double x = number(jp.get(0));
+                double y = number(jp.get(1));
+                double h = number(jp.get(2));
                 waypoints[i] = new Waypoint(x, y, h);
             }
-            int rate = Trajectory.SampleRate.valueOf("HIGH").getRate();
-            //traj = new CenterTrajectory(method, rate, tightness, dt, width, velocity, acceleration, jerk, waypoints);
+            return new Spec(method, dt, width, velocity, acceleration, jerk, tightness, waypoints);
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return traj;
+        return null;
+    }
+
+    /**
+     * @param value a number parsed by json-simple (Long or Double) or a number in a String.
+     * @return the number as a double.
+     */
+    private static double number(Object value) {
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        return Double.parseDouble((String) value);
     }
 
 }
@@ -0,0 +1,68 @@
+package io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * MappedTrajectory.java
+ *
+ * A trajectory read from a memory mapped binary file.
+ * Columns are views of the file, nothing is copied or parsed.
+ */
+
+public class MappedTrajectory {
+
+    /** How far apart the points are in time. */
+    public final double dt;
+    private final int size;
+    private final String[] names;
+    private final DoubleBuffer[] columns;
+
+    /**
+     * @param buf the mapped file.
+     * @param offset byte offset of the first column.
+     * @param dt how far apart the points are in time.
+     * @param size amount of points.
+     * @param names names of the columns in the order they are stored.
+     */
+    MappedTrajectory(ByteBuffer buf, int offset, double dt, int size, String[] names) {
+        this.dt = dt;
+        this.size = size;
+        this.names = names;
+        columns = new DoubleBuffer[names.length];
+        for (int c = 0; c < names.length; c++) {
+            ByteBuffer column = buf.duplicate();
+            column.position(offset + c * size * Double.BYTES);
+            column.limit(column.position() + size * Double.BYTES);
+            columns[c] = column.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    /**
+     * @return the amount of points.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return names of the columns in the file.
+     */
+    public String[] getColumnNames() {
+        return names.clone();
+    }
+
+    /**
+     * @param name name of the column, one of Binary.COLUMNS for files made by exportBinary.
+     * @return a read-only view of the column, index i belongs to point i.
+     *         null if the file does not have the column.
+     */
+    public DoubleBuffer getColumn(String name) {
+        for (int c = 0; c < names.length; c++) {
+            if (names[c].equals(name)) return columns[c].duplicate();
+        }
+        return null;
+    }
+
+}
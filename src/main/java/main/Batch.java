@@ -0,0 +1,324 @@
+package main;
+
+import gen.GenerationStats;
+import gen.Trajectory;
+import gen.modifiers.Modifier;
+import gen.modifiers.SwerveModifier;
+import gen.modifiers.TankModifier;
+import io.Binary;
+import io.Compact;
+import io.CSV;
+import io.CSVExporter;
+import io.JSON;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Batch.java
+ *
+ * Generates the center, left and right trajectories of every path spec
+ * (files written by JSON.save) in a directory without the gui. With a
+ * wheelbase, the trajectory of every swerve module is generated instead
+ * of the left and right ones. Paths are
+ * generated at the same time on a fixed amount of threads, and paths whose
+ * spec and options did not change since the last run are skipped.
+ *
+ * usage: Batch <spec directory> [--out dir] [--threads n] [--width w] [--wheelbase b]
+ *              [--rate low|medium|high|adaptive] [--format csv|bin|ptc] [--force] [--stats]
+ */
+
+public class Batch {
+
+    /** Remembers the hash of every spec that was generated, kept in the output directory. */
+    private static final String MANIFEST = ".batch-manifest";
+    /** Changes whenever the outputs of the same spec change, so every path is generated again. */
+    private static final String VERSION = "3";
+
+    private File specs;
+    private File out;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** Wheel base width used for specs that do not have one. */
+    private double width = Double.NaN;
+    /** Distance between the front and back swerve modules, NaN for a tank drive. */
+    private double wheelbase = Double.NaN;
+    private Trajectory.SampleRate rate = Trajectory.SampleRate.HIGH;
+    private String format = "csv";
+    private boolean force = false;
+
+    /** What happened to one spec. */
+    private static class Result {
+        private final String name;
+        private final String status;
+        private final boolean failed;
+        /** Hash of the spec and options, null if the path was not generated. */
+        private final String hash;
+        /** Time spent in each stage, null unless --stats was given. */
+        private String stats;
+
+        private Result(String name, String status, boolean failed, String hash) {
+            this.name = name;
+            this.status = status;
+            this.failed = failed;
+            this.hash = hash;
+        }
+    }
+
+    public static void main(String[] args) {
+        Batch batch = new Batch();
+        try {
+            batch.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: Batch <spec directory> [--out dir] [--threads n] [--width w] [--wheelbase b] " +
+                    "[--rate low|medium|high|adaptive] [--format csv|bin|ptc] [--force] [--stats]");
+            System.exit(2);
+        }
+        System.exit(batch.run() ? 0 : 1);
+    }
+
+    /**
+     * @param args command line arguments.
+     */
+    private void parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--force")) {
+                force = true;
+                continue;
+            }
+            if (arg.equals("--stats")) {
+                GenerationStats.setEnabled(true);
+                continue;
+            }
+            if (!arg.startsWith("--")) {
+                if (specs != null) throw new IllegalArgumentException("More than one spec directory given");
+                specs = new File(arg);
+                continue;
+            }
+            if (i + 1 == args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--out":
+                    out = new File(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    if (threads < 1) throw new IllegalArgumentException("Need at least one thread");
+                    break;
+                case "--width":
+                    width = Double.parseDouble(value);
+                    break;
+                case "--wheelbase":
+                    wheelbase = Double.parseDouble(value);
+                    break;
+                case "--rate":
+                    rate = Trajectory.SampleRate.valueOf(value.toUpperCase());
+                    break;
+                case "--format":
+                    format = value.toLowerCase();
+                    if (!format.equals("csv") && !format.equals("bin") && !format.equals("ptc")) {
+                        throw new IllegalArgumentException("Unknown format " + value);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (specs == null || !specs.isDirectory()) throw new IllegalArgumentException("Not a spec directory: " + specs);
+        if (out == null) out = specs;
+    }
+
+    /**
+     * Generates every spec in the directory.
+     * @return whether every path was generated or skipped without errors.
+     */
+    private boolean run() {
+        File[] files = specs.listFiles((dir, name) -> name.toLowerCase().endsWith(".json"));
+        if (files == null || files.length == 0) {
+            System.out.println("No specs in " + specs);
+            return true;
+        }
+        Arrays.sort(files);
+        if (!out.isDirectory() && !out.mkdirs()) {
+            System.err.println("Can not make output directory " + out);
+            return false;
+        }
+        Properties manifest = loadManifest();
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.length));
+        List<Future<Result>> results = new ArrayList<>();
+        for (File file : files) {
+            results.add(pool.submit(() -> generate(file, manifest)));
+        }
+        pool.shutdown();
+
+        boolean ok = true;
+        int generated = 0, skipped = 0;
+        for (Future<Result> future : results) {
+            Result result;
+            try {
+                result = future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                // generate catches everything it can, this is only a bug or an interrupt
+                e.printStackTrace();
+                ok = false;
+                continue;
+            }
+            System.out.println(String.format("%-30s %s", result.name, result.status));
+            if (result.stats != null) System.out.println(result.stats);
+            if (result.failed) {
+                ok = false;
+                manifest.remove(result.name);
+            } else if (result.hash != null) {
+                generated++;
+                manifest.setProperty(result.name, result.hash);
+            } else {
+                skipped++;
+            }
+        }
+        saveManifest(manifest);
+        System.out.println(String.format("%d generated, %d unchanged, %d failed in %d ms on %d threads",
+                generated, skipped, files.length - generated - skipped,
+                (System.nanoTime() - start) / 1000000, Math.min(threads, files.length)));
+        return ok;
+    }
+
+    /**
+     * Generates one spec unless it did not change since the last run.
+     * @param file the spec.
+     * @param manifest hashes of the last run, only read here.
+     * @return what happened.
+     */
+    private Result generate(File file, Properties manifest) {
+        String name = file.getName().substring(0, file.getName().length() - ".json".length());
+        File center = output(name, "center");
+        try {
+            String hash = hash(file);
+            if (!force && hash.equals(manifest.getProperty(name)) && center.isFile() && sidesExist(name)) {
+                return new Result(name, "unchanged, skipped", false, null);
+            }
+
+            long t0 = System.nanoTime();
+            JSON.Spec spec = JSON.loadSpec(file);
+            if (spec == null) return new Result(name, "failed: could not read spec", true, null);
+            double w = Double.isNaN(spec.width) ? width : spec.width;
+            if (Double.isNaN(w)) return new Result(name, "failed: no width in spec, pass --width", true, null);
+            Trajectory traj = spec.generate(rate.getRate());
+            long t1 = System.nanoTime();
+            Modifier modifier = Double.isNaN(wheelbase) ?
+                    new TankModifier(traj, w / 2.0) : new SwerveModifier(traj, wheelbase, w);
+            long t2 = System.nanoTime();
+            String[] sides = modifier.getNames();
+            if (format.equals("bin")) {
+                Binary.exportBinary(center, traj);
+                for (int i = 0; i < sides.length; i++) {
+                    Binary.exportBinary(output(name, sides[i]), modifier.getBuffer(i), traj.dt);
+                }
+            } else if (format.equals("ptc")) {
+                Compact.exportCompact(center, traj);
+                for (int i = 0; i < sides.length; i++) {
+                    Compact.exportCompact(output(name, sides[i]), modifier.getBuffer(i), traj.dt,
+                            Compact.DEFAULT_ENCODINGS);
+                }
+            } else {
+                CSV.exportCSV(center, traj.getBuffer(), CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+                for (int i = 0; i < sides.length; i++) {
+                    CSV.exportCSV(output(name, sides[i]), modifier.getBuffer(i),
+                            CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+                }
+            }
+            long t3 = System.nanoTime();
+            Result result = new Result(name, String.format("%6d ms (center %d ms, %s %d ms, write %d ms, %d points)",
+                    (t3 - t0) / 1000000, (t1 - t0) / 1000000, Double.isNaN(wheelbase) ? "tank" : "swerve",
+                    (t2 - t1) / 1000000, (t3 - t2) / 1000000, traj.getBuffer().size()), false, hash);
+            if (traj.getStats() != null) {
+                result.stats = traj.getStats() + "\n" + modifier.getStats();
+            }
+            return result;
+        } catch (Exception e) {
+            return new Result(name, "failed: " + e, true, null);
+        }
+    }
+
+    /**
+     * @param name name of the path.
+     * @return whether every side of the path was written before.
+     */
+    private boolean sidesExist(String name) {
+        String[] sides = Double.isNaN(wheelbase) ? new String[] {"left", "right"} :
+                new String[] {"front_left", "front_right", "back_left", "back_right"};
+        for (String side : sides) {
+            if (!output(name, side).isFile()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the file one side of a path is written to.
+     */
+    private File output(String name, String side) {
+        return new File(out, name + "_" + side + "." + format);
+    }
+
+    /**
+     * @param file the spec.
+     * @return a hash of the spec and of every option that changes the outputs.
+     */
+    private String hash(File file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Files.readAllBytes(file.toPath()));
+            String options = VERSION + "|" + rate + "|" + width + "|" + wheelbase + "|" + format;
+            digest.update(options.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Properties loadManifest() {
+        Properties manifest = new Properties();
+        File file = new File(out, MANIFEST);
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                manifest.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read " + file + ", generating every path");
+            }
+        }
+        return manifest;
+    }
+
+    private void saveManifest(Properties manifest) {
+        File file = new File(out, MANIFEST);
+        try (OutputStream os = new FileOutputStream(file)) {
+            manifest.store(os, "hashes of the specs generated by main.Batch");
+        } catch (IOException e) {
+            System.err.println("Could not write " + file);
+        }
+    }
+
+}
@@ -2,9 +2,16 @@ package main;
 
 import gen.modifiers.TankModifier;
 import io.CSV;
+import io.CSVExporter;
 import gen.Trajectory;
+import gen.TrajectoryBuffer;
+import gen.TrajectoryCache;
 import gen.Waypoint;
+import io.Binary;
+import io.Compact;
 import io.JSON;
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -21,6 +28,11 @@ import javafx.util.StringConverter;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Gui {
 
@@ -43,21 +55,216 @@ public class Gui {
     public Button save = null;
     public Button load = null;
 
+    public Label status = null;
+    public PathView preview = null;
+    public ProfileChart velocityChart = null;
+    public ProfileChart accelerationChart = null;
+    public ProfileChart curvatureChart = null;
+
+    /** Trajectories generated before, kept between runs of the program. */
+    private static final TrajectoryCache CACHE = new TrajectoryCache(64L << 20,
+            new File(System.getProperty("user.home"), ".profiler/cache"));
+
+    /** Rates a path is previewed at before the final one, each one replaces the last. */
+    private static final Trajectory.SampleRate[] PREVIEWS = {Trajectory.SampleRate.LOW, Trajectory.SampleRate.MEDIUM};
+
+    /** Generates on one background thread so the window never waits for it. */
+    private final ExecutorService generator = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /** The preview being generated, cancelled when the inputs change again. Only used on the fx thread. */
+    private Future<?> job;
+    /** Counts previews started, results of older ones are not shown. Only used on the fx thread. */
+    private long jobId;
+    private boolean refreshQueued;
+
+    // only used on the generator thread
     private Trajectory center;
     private TankModifier tank;
+    /** What center and tank were made from. */
+    private Inputs made;
+
+    /**
+     * Everything read from the window that a trajectory is made from,
+     * read on the fx thread and handed to the generator thread.
+     */
+    private static final class Inputs {
+
+        private final Trajectory.FitMethod method;
+        private final double tightness, dt, velocity, acceleration, jerk, width;
+        private final Waypoint[] waypoints;
+        /** x, y and heading of every waypoint, to compare inputs. */
+        private final double[] points;
+
+        private Inputs(Gui gui) {
+            waypoints = new Waypoint[gui.x.getItems().size()];
+            points = new double[waypoints.length * 3];
+            for(int i = 0; i < waypoints.length; i++) {
+                waypoints[i] = new Waypoint(Double.parseDouble(gui.x.getItems().get(i)),
+                        Double.parseDouble(gui.y.getItems().get(i)),
+                        Math.toRadians(Double.parseDouble(gui.h.getItems().get(i))));
+                points[3 * i] = waypoints[i].x;
+                points[3 * i + 1] = waypoints[i].y;
+                points[3 * i + 2] = waypoints[i].heading;
+            }
+            method = Trajectory.FitMethod.findMethod(gui.spline.getValue());
+            tightness = Double.parseDouble(gui.tightness.getText());
+            dt = Double.parseDouble(gui.dt.getText());
+            velocity = Double.parseDouble(gui.velocity.getText());
+            acceleration = Double.parseDouble(gui.acceleration.getText());
+            jerk = Double.parseDouble(gui.jerk.getText());
+            width = Double.parseDouble(gui.width.getText());
+        }
+
+        /**
+         * @return whether a trajectory can be made from these inputs.
+         */
+        private boolean isValid() {
+            return waypoints.length >= 2 && dt > 0 && velocity > 0 && acceleration > 0 && jerk > 0;
+        }
+
+        /**
+         * @return whether a trajectory was made with these settings, the waypoints may differ.
+         */
+        private boolean sameSettings(Trajectory traj, int rate) {
+            return traj != null && traj.method == method && traj.sampleRate == rate && traj.spline.tightness == tightness &&
+                    traj.dt == dt && traj.maxVelocity == velocity && traj.maxAcceleration == acceleration && traj.maxJerk == jerk;
+        }
 
-    private void makeTraj() {
-        Waypoint[] waypoints = new Waypoint[x.getItems().size()];
-        for(int i = 0; i < waypoints.length; i++) {
-            waypoints[i] = new Waypoint(Double.parseDouble(x.getItems().get(i)),
-                    Double.parseDouble(y.getItems().get(i)),
-                    Math.toRadians(Double.parseDouble(h.getItems().get(i))));
+        private boolean sameAs(Inputs that) {
+            return that != null && that.method == method && that.tightness == tightness && that.dt == dt &&
+                    that.velocity == velocity && that.acceleration == acceleration && that.jerk == jerk &&
+                    that.width == width && Arrays.equals(that.points, points);
         }
+
+    }
+
+    /**
+     * Makes the center and tank trajectories at HIGH, on the generator thread.
+     * @param inputs what to make them from.
+     * @throws CancellationException if the thread is interrupted while generating.
+     */
+    private void makeTraj(Inputs inputs) {
+        if (inputs.sameAs(made)) return;
         int rate = Trajectory.SampleRate.valueOf("HIGH").getRate();
-        center = new Trajectory(Trajectory.FitMethod.findMethod(spline.getValue()), rate, Double.parseDouble(tightness.getText()), Double.parseDouble(dt.getText()),
-                Double.parseDouble(velocity.getText()), Double.parseDouble(acceleration.getText()), Double.parseDouble(jerk.getText()),
-                waypoints);
-        tank = new TankModifier(center, Double.parseDouble(width.getText()) / 2.0);
+        Trajectory traj;
+        if (inputs.sameSettings(center, rate)) {
+            // only the waypoints (or width) changed, keep the samples of the segments that did not
+            traj = center.withWaypoints(inputs.waypoints);
+        } else {
+            traj = CACHE.get(inputs.method, rate, inputs.tightness, inputs.dt, inputs.velocity,
+                    inputs.acceleration, inputs.jerk, inputs.waypoints);
+        }
+        TankModifier sides = new TankModifier(traj, inputs.width / 2.0);
+        center = traj;
+        tank = sides;
+        made = inputs;
+        if (center.getStats() != null) {
+            // started with -Dprofiler.stats=true
+            System.out.println(center.getStats());
+            System.out.println(tank.getStats());
+        }
+    }
+
+    /**
+     * Previews the path again once the current fx event is done,
+     * so changing many inputs at once (loading) only starts one preview.
+     */
+    private void refresh() {
+        if (refreshQueued) return;
+        refreshQueued = true;
+        Platform.runLater(() -> {
+            refreshQueued = false;
+            startPreview();
+        });
+    }
+
+    /**
+     * Cancels the preview being generated and starts one for the current inputs:
+     * LOW first (milliseconds), then MEDIUM, then the HIGH trajectory that is exported.
+     */
+    private void startPreview() {
+        Inputs inputs;
+        try {
+            inputs = new Inputs(this);
+        } catch (NumberFormatException n) {
+            status.setText("not a number!!!");
+            return;
+        }
+        if (job != null) job.cancel(true);
+        long id = ++jobId;
+        if (!inputs.isValid()) {
+            status.setText("need at least two points");
+            drawPreview();
+            return;
+        }
+        status.setText("generating...");
+        job = generator.submit(() -> {
+            try {
+                if (!inputs.sameAs(made)) {
+                    for (Trajectory.SampleRate rate : PREVIEWS) {
+                        Trajectory traj = new Trajectory(inputs.method, rate.getRate(), inputs.tightness, inputs.dt,
+                                inputs.velocity, inputs.acceleration, inputs.jerk, inputs.waypoints);
+                        show(id, traj, null, "preview (" + rate.name().toLowerCase() + ")");
+                    }
+                }
+                makeTraj(inputs);
+                show(id, center, tank, "high");
+            } catch (CancellationException e) {
+                // the inputs changed, a newer preview replaces this one
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> { if (id == jobId) status.setText("failed: " + e.getMessage()); });
+            }
+        });
+    }
+
+    /**
+     * Shows a trajectory from the generator thread, unless a newer preview was started.
+     * Trajectories are not changed after they are made, so they can be drawn on the fx thread.
+     * @param id the preview the trajectory belongs to.
+     * @param traj the center trajectory.
+     * @param sides the left and right trajectories, null while previewing.
+     * @param what which stage the trajectory is from.
+     */
+    private void show(long id, Trajectory traj, TankModifier sides, String what) {
+        Platform.runLater(() -> {
+            if (id != jobId) return;
+            TrajectoryBuffer buf = traj.getBuffer();
+            status.setText(String.format("%s: %d points, %.2f s", what, buf.size(),
+                    buf.isEmpty() ? 0 : buf.time[buf.size() - 1]));
+            if (sides == null) drawPreview(buf);
+            else drawPreview(buf, sides.getLeftBuffer(), sides.getRightBuffer());
+        });
+    }
+
+    /**
+     * Runs a task on the generator thread after the preview, so it reuses the
+     * trajectories the preview made instead of generating them again.
+     * @param done status shown when the task is finished.
+     * @param task what to do with the trajectories.
+     */
+    private void inBackground(String done, Runnable task) {
+        generator.submit(() -> {
+            try {
+                task.run();
+                Platform.runLater(() -> status.setText(done));
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> status.setText("failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * @param paths the center path first, then the sides if there are any, none to clear.
+     */
+    private void drawPreview(TrajectoryBuffer... paths) {
+        preview.setPaths(paths);
+        TrajectoryBuffer center = paths.length > 0 ? paths[0] : new TrajectoryBuffer(0);
+        velocityChart.setSeries(center.time, center.velocity, center.size());
+        accelerationChart.setSeries(center.time, center.acceleration, center.size());
+        curvatureChart.setSeries(center.time, center.curvature, center.size());
     }
 
     private String getDateTimeString() {
@@ -136,19 +343,38 @@ public class Gui {
     public void generate() {
         FileChooser chooser = new FileChooser();
         chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Comma Separated Values", "*.csv"));
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Binary trajectory", "*.bin"));
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Compact trajectory", "*.ptc"));
         chooser.setInitialFileName(getDateTimeString() + ".csv");
         File file = chooser.showSaveDialog(new Stage());
+        if (file == null) return;
 
         String name = getFilePath(file);
         String ext = getFileExtension(file);
+        Inputs inputs;
         try {
-            makeTraj();
-            CSV.exportCSV(new File(name + "_center" + ext), center.getPoints());
-            CSV.exportCSV(new File(name + "_left" + ext), tank.getLeft());
-            CSV.exportCSV(new File(name + "_right" + ext), tank.getRight());
+            inputs = new Inputs(this);
         }catch(NumberFormatException n) {
             System.out.println("not a number!!!");
+            return;
         }
+        inBackground("exported " + file.getName(), () -> {
+            makeTraj(inputs);
+            if (ext.equalsIgnoreCase(".bin")) {
+                Binary.exportBinary(new File(name + "_center" + ext), center);
+                Binary.exportBinary(new File(name + "_left" + ext), tank.getLeftBuffer(), center.dt);
+                Binary.exportBinary(new File(name + "_right" + ext), tank.getRightBuffer(), center.dt);
+            } else if (ext.equalsIgnoreCase(".ptc")) {
+                Compact.exportCompact(new File(name + "_center" + ext), center);
+                Compact.exportCompact(new File(name + "_left" + ext), tank.getLeftBuffer(), center.dt, Compact.DEFAULT_ENCODINGS);
+                Compact.exportCompact(new File(name + "_right" + ext), tank.getRightBuffer(), center.dt, Compact.DEFAULT_ENCODINGS);
+            } else {
+                // straight from the columns, without copying every point into a waypoint
+                CSV.exportCSV(new File(name + "_center" + ext), center.getBuffer(), CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+                CSV.exportCSV(new File(name + "_left" + ext), tank.getLeftBuffer(), CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+                CSV.exportCSV(new File(name + "_right" + ext), tank.getRightBuffer(), CSVExporter.SHORTEST, CSVExporter.DEFAULT_COLUMNS);
+            }
+        });
     }
 
     @FXML
@@ -157,8 +383,18 @@ public class Gui {
         chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("javascript object notation", "*.json"));
         chooser.setInitialFileName(getDateTimeString() + ".json");
         File file = chooser.showSaveDialog(new Stage());
-        makeTraj();
-        JSON.save(center, file);
+        if (file == null) return;
+        Inputs inputs;
+        try {
+            inputs = new Inputs(this);
+        }catch(NumberFormatException n) {
+            System.out.println("not a number!!!");
+            return;
+        }
+        inBackground("saved " + file.getName(), () -> {
+            makeTraj(inputs);
+            JSON.save(center, inputs.width, file);
+        });
     }
 
     @FXML
@@ -166,15 +402,22 @@ public class Gui {
         FileChooser chooser = new FileChooser();
         chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("javascript object notation", "*.json"));
         File file = chooser.showOpenDialog(new Stage());
-        spline.setValue(center.method.toString());
-        center = JSON.load(file);
-        dt.setText(Double.toString(center.dt));
-        velocity.setText(Double.toString(center.maxVelocity));
-        acceleration.setText(Double.toString(center.maxAcceleration));
-        jerk.setText(Double.toString(center.maxJerk));
-        tightness.setText(Double.toString(center.spline.tightness));
-        for(Waypoint w : center.spline.getControlPoints()) {
-            addPoint(w.x, w.y, w.heading);
+        if (file == null) return;
+        JSON.Spec spec = JSON.loadSpec(file);
+        if (spec == null) return;
+        // the inputs changing starts generating the path in the background
+        spline.setValue(spec.method.toString());
+        if (!Double.isNaN(spec.width)) width.setText(Double.toString(spec.width));
+        dt.setText(Double.toString(spec.dt));
+        velocity.setText(Double.toString(spec.velocity));
+        acceleration.setText(Double.toString(spec.acceleration));
+        jerk.setText(Double.toString(spec.jerk));
+        tightness.setText(Double.toString(spec.tightness));
+        x.getItems().clear();
+        y.getItems().clear();
+        h.getItems().clear();
+        for(Waypoint w : spec.waypoints) {
+            addPoint(w.x, w.y, Math.toDegrees(w.heading));
         }
     }
 
@@ -219,6 +462,19 @@ public class Gui {
         y.setCellFactory(TextFieldListCell.forListView(converter));
         h.setCellFactory(TextFieldListCell.forListView(converter));
 
+        velocityChart.setTitle("velocity");
+        accelerationChart.setTitle("acceleration");
+        curvatureChart.setTitle("curvature");
+
+        // preview the path whenever an input changes
+        spline.valueProperty().addListener((observable, oldValue, newValue) -> refresh());
+        for (TextField field : new TextField[] {dt, velocity, acceleration, jerk, width, tightness}) {
+            field.textProperty().addListener((observable, oldValue, newValue) -> refresh());
+        }
+        for (ListView<String> list : Arrays.asList(x, y, h)) {
+            list.getItems().addListener((ListChangeListener<String>) change -> refresh());
+        }
+
         center = null;
     }
 
@@ -0,0 +1,142 @@
+package main;
+
+/**
+ * MinMaxPyramid.java
+ *
+ * The smallest and largest value of every block of a column, for blocks
+ * of 8 points, 16 points, 32 points and so on up to one block holding the
+ * whole column. Lets the plots find the range of any run of points in a
+ * few steps instead of reading every point, so drawing a million points
+ * costs about as much as drawing a thousand. Takes about a quarter of the
+ * column's memory.
+ */
+
+public class MinMaxPyramid {
+
+    /** Blocks of the first level hold 2^BASE points, smaller runs are read from the column. */
+    static final int BASE = 3;
+
+    private final double[] column;
+    private final int size;
+    /** min[k][j] and max[k][j] are the range of block j of level k, holding 2^(BASE + k) points. */
+    private final double[][] min, max;
+
+    /**
+     * @param column values, not copied so it should not change while the pyramid is used.
+     * @param size amount of values in the column.
+     */
+    public MinMaxPyramid(double[] column, int size) {
+        this.column = column;
+        this.size = size;
+        int levels = 1;
+        for (int blocks = blocks(size, BASE); blocks > 1; blocks = (blocks + 1) / 2) levels++;
+        min = new double[levels][];
+        max = new double[levels][];
+
+        int blocks = blocks(size, BASE);
+        min[0] = new double[blocks];
+        max[0] = new double[blocks];
+        for (int j = 0; j < blocks; j++) {
+            double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+            for (int i = j << BASE, end = Math.min(size, (j + 1) << BASE); i < end; i++) {
+                lo = Math.min(lo, column[i]);
+                hi = Math.max(hi, column[i]);
+            }
+            min[0][j] = lo;
+            max[0][j] = hi;
+        }
+        for (int k = 1; k < levels; k++) {
+            int below = min[k - 1].length;
+            blocks = (below + 1) / 2;
+            min[k] = new double[blocks];
+            max[k] = new double[blocks];
+            for (int j = 0; j < blocks; j++) {
+                int a = 2 * j, b = Math.min(2 * j + 1, below - 1);
+                min[k][j] = Math.min(min[k - 1][a], min[k - 1][b]);
+                max[k][j] = Math.max(max[k - 1][a], max[k - 1][b]);
+            }
+        }
+    }
+
+    /**
+     * @return blocks of 2^shift points needed to hold size points.
+     */
+    private static int blocks(int size, int shift) {
+        return Math.max(1, (size + (1 << shift) - 1) >>> shift);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the amount of levels, the last one has a single block.
+     */
+    public int levels() {
+        return min.length;
+    }
+
+    /**
+     * @return the amount of blocks in a level.
+     */
+    public int blocks(int level) {
+        return min[level].length;
+    }
+
+    /**
+     * @return log2 of the amount of points in a block of a level.
+     */
+    public int shift(int level) {
+        return BASE + level;
+    }
+
+    public double min(int level, int block) {
+        return min[level][block];
+    }
+
+    public double max(int level, int block) {
+        return max[level][block];
+    }
+
+    /**
+     * Finds the smallest and largest value of a run of points.
+     * @param from index of the first point.
+     * @param to index after the last point, more than from.
+     * @param out where the smallest (out[0]) and largest (out[1]) value are written.
+     */
+    public void range(int from, int to, double[] out) {
+        double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+        int mask = (1 << BASE) - 1;
+        // points before the first and after the last whole block
+        while (from < to && (from & mask) != 0) {
+            lo = Math.min(lo, column[from]);
+            hi = Math.max(hi, column[from]);
+            from++;
+        }
+        while (to > from && (to & mask) != 0 && to != size) {
+            to--;
+            lo = Math.min(lo, column[to]);
+            hi = Math.max(hi, column[to]);
+        }
+        // whole blocks, climbing a level whenever two neighbours can be taken as one
+        // to is a multiple of the block size or the end of the column (the end of the last block)
+        int a = from >>> BASE, b = from < to ? (to + mask) >>> BASE : a;
+        for (int k = 0; a < b; k++) {
+            if ((a & 1) != 0) {
+                lo = Math.min(lo, min[k][a]);
+                hi = Math.max(hi, max[k][a]);
+                a++;
+            }
+            if ((b & 1) != 0) {
+                b--;
+                lo = Math.min(lo, min[k][b]);
+                hi = Math.max(hi, max[k][b]);
+            }
+            a >>>= 1;
+            b >>>= 1;
+        }
+        out[0] = lo;
+        out[1] = hi;
+    }
+
+}
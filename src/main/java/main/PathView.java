@@ -0,0 +1,203 @@
+package main;
+
+import gen.TrajectoryBuffer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.paint.Color;
+
+/**
+ * PathView.java
+ *
+ * Draws the center, left and right paths on the field. Scroll to zoom
+ * around the mouse, drag to pan and double click to fit the paths again.
+ *
+ * Only what can be seen is drawn: a block of points (from MinMaxPyramid)
+ * whose bounding box is outside the canvas is skipped, and a block that
+ * fits in one pixel is drawn as a line between its first and last point,
+ * so a redraw follows at most a few points per pixel of path on screen.
+ */
+
+public class PathView extends Canvas {
+
+    /** Colors of the center, left and right paths. */
+    private static final Color[] COLORS = {Color.BLACK, Color.BLUE, Color.RED};
+    private static final double MARGIN = 5;
+
+    private TrajectoryBuffer[] paths = new TrajectoryBuffer[0];
+    private MinMaxPyramid[] xs = new MinMaxPyramid[0], ys = new MinMaxPyramid[0];
+    private final Polyline line = new Polyline();
+
+    /** Field position at the bottom left corner of the canvas. */
+    private double originX, originY;
+    /** Pixels per unit of the field. */
+    private double scale = 1;
+    /** Whether the view follows the paths, false once the user pans or zooms. */
+    private boolean fitted = true;
+    private double dragX, dragY;
+
+    public PathView() {
+        setOnScroll(e -> {
+            double zoom = Math.pow(1.002, e.getDeltaY());
+            // keep the field point under the mouse in place
+            double fx = fieldX(e.getX()), fy = fieldY(e.getY());
+            scale *= zoom;
+            originX = fx - e.getX() / scale;
+            originY = fy - (getHeight() - e.getY()) / scale;
+            fitted = false;
+            draw();
+        });
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragY = e.getY();
+        });
+        setOnMouseDragged(e -> {
+            originX -= (e.getX() - dragX) / scale;
+            originY += (e.getY() - dragY) / scale;
+            dragX = e.getX();
+            dragY = e.getY();
+            fitted = false;
+            draw();
+        });
+        setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+                fitted = true;
+                fit();
+                draw();
+            }
+        });
+    }
+
+    /**
+     * @param paths the center path first, then the sides if there are any.
+     *              Not copied, they should not change while they are shown.
+     */
+    public void setPaths(TrajectoryBuffer... paths) {
+        this.paths = paths;
+        xs = new MinMaxPyramid[paths.length];
+        ys = new MinMaxPyramid[paths.length];
+        for (int p = 0; p < paths.length; p++) {
+            xs[p] = new MinMaxPyramid(paths[p].x, paths[p].size());
+            ys[p] = new MinMaxPyramid(paths[p].y, paths[p].size());
+        }
+        if (fitted) fit();
+        draw();
+    }
+
+    /**
+     * Zooms so every path fits the canvas, keeping their proportions.
+     */
+    private void fit() {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int p = 0; p < paths.length; p++) {
+            if (paths[p].isEmpty()) continue;
+            int top = xs[p].levels() - 1;
+            minX = Math.min(minX, xs[p].min(top, 0));
+            maxX = Math.max(maxX, xs[p].max(top, 0));
+            minY = Math.min(minY, ys[p].min(top, 0));
+            maxY = Math.max(maxY, ys[p].max(top, 0));
+        }
+        if (minX > maxX) return;
+        scale = Math.min((getWidth() - 2 * MARGIN) / Math.max(maxX - minX, 1e-9),
+                (getHeight() - 2 * MARGIN) / Math.max(maxY - minY, 1e-9));
+        originX = minX - MARGIN / scale;
+        originY = minY - MARGIN / scale;
+    }
+
+    public void draw() {
+        GraphicsContext g = getGraphicsContext2D();
+        g.clearRect(0, 0, getWidth(), getHeight());
+        for (int p = 0; p < paths.length; p++) {
+            trace(paths[p], xs[p], ys[p], originX, originY, scale, getWidth(), getHeight(), line);
+            g.setStroke(COLORS[Math.min(p, COLORS.length - 1)]);
+            line.stroke(g);
+        }
+    }
+
+    /**
+     * Finds the lines to draw for one path.
+     * @param path the path.
+     * @param xs pyramid of the path's x column.
+     * @param ys pyramid of the path's y column.
+     * @param originX field x at the left edge of the canvas.
+     * @param originY field y at the bottom edge of the canvas.
+     * @param scale pixels per unit of the field.
+     * @param width width of the canvas.
+     * @param height height of the canvas.
+     * @param out where the lines are written.
+     */
+    static void trace(TrajectoryBuffer path, MinMaxPyramid xs, MinMaxPyramid ys, double originX, double originY,
+                      double scale, double width, double height, Polyline out) {
+        out.clear();
+        if (path.isEmpty()) return;
+        Tracer tracer = new Tracer(path, xs, ys, originX, originY, scale, width, height, out);
+        int top = xs.levels() - 1;
+        for (int j = 0; j < xs.blocks(top); j++) tracer.visit(top, j);
+    }
+
+    /** Walks the pyramids of a path from the whole path down to what can be seen. */
+    private static final class Tracer {
+
+        private final TrajectoryBuffer path;
+        private final MinMaxPyramid xs, ys;
+        private final double originX, originY, scale, width, height;
+        private final Polyline out;
+
+        private Tracer(TrajectoryBuffer path, MinMaxPyramid xs, MinMaxPyramid ys, double originX, double originY,
+                       double scale, double width, double height, Polyline out) {
+            this.path = path;
+            this.xs = xs;
+            this.ys = ys;
+            this.originX = originX;
+            this.originY = originY;
+            this.scale = scale;
+            this.width = width;
+            this.height = height;
+            this.out = out;
+        }
+
+        /**
+         * @param level level of the block in the pyramids.
+         * @param block index of the block in its level.
+         */
+        private void visit(int level, int block) {
+            int from = block << xs.shift(level);
+            int to = Math.min(path.size(), from + (1 << xs.shift(level)));
+            double left = screenX(xs.min(level, block)), right = screenX(xs.max(level, block));
+            // y goes up on the field and down on the canvas
+            double top = screenY(ys.max(level, block)), bottom = screenY(ys.min(level, block));
+            if (right < 0 || left > width || bottom < 0 || top > height) {
+                // off screen: keep the lines into and out of the block, skip what is in it
+                out.lineTo(screenX(path.x[from]), screenY(path.y[from]));
+                out.moveTo(screenX(path.x[to - 1]), screenY(path.y[to - 1]));
+            } else if (right - left < 1 && bottom - top < 1) {
+                out.lineTo(screenX(path.x[from]), screenY(path.y[from]));
+                out.lineTo(screenX(path.x[to - 1]), screenY(path.y[to - 1]));
+            } else if (level == 0) {
+                for (int i = from; i < to; i++) out.lineTo(screenX(path.x[i]), screenY(path.y[i]));
+            } else {
+                visit(level - 1, 2 * block);
+                if (2 * block + 1 < xs.blocks(level - 1)) visit(level - 1, 2 * block + 1);
+            }
+        }
+
+        private double screenX(double x) {
+            return (x - originX) * scale;
+        }
+
+        private double screenY(double y) {
+            return height - (y - originY) * scale;
+        }
+
+    }
+
+    private double fieldX(double sx) {
+        return originX + sx / scale;
+    }
+
+    private double fieldY(double sy) {
+        return originY + (getHeight() - sy) / scale;
+    }
+
+}
@@ -0,0 +1,78 @@
+package main;
+
+import javafx.scene.canvas.GraphicsContext;
+
+import java.util.Arrays;
+
+/**
+ * Polyline.java
+ *
+ * Lines in canvas coordinates made by the plots before they are drawn.
+ * Kept between redraws so panning and zooming do not allocate, and
+ * points closer than a quarter of a pixel to the last one are dropped.
+ */
+
+public class Polyline {
+
+    private double[] xs = new double[1024], ys = new double[1024];
+    /** Whether each point starts a new line instead of continuing the last one. */
+    private boolean[] moves = new boolean[1024];
+    private int size;
+    /** Whether the next lineTo has a point to continue from. */
+    private boolean drawing;
+
+    public void clear() {
+        size = 0;
+        drawing = false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Starts a new line.
+     */
+    public void moveTo(double x, double y) {
+        add(x, y, true);
+        drawing = true;
+    }
+
+    /**
+     * Continues the line to a point, or starts one if there is none.
+     */
+    public void lineTo(double x, double y) {
+        if (drawing && Math.abs(x - xs[size - 1]) < 0.25 && Math.abs(y - ys[size - 1]) < 0.25) return;
+        add(x, y, !drawing);
+        drawing = true;
+    }
+
+    private void add(double x, double y, boolean move) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        if (move && size > 0 && moves[size - 1]) {
+            // a line of one point draws nothing, replace it
+            size--;
+        }
+        xs[size] = x;
+        ys[size] = y;
+        moves[size] = move;
+        size++;
+    }
+
+    /**
+     * Strokes every line with the current stroke of the graphics context.
+     */
+    public void stroke(GraphicsContext g) {
+        g.beginPath();
+        for (int i = 0; i < size; i++) {
+            if (moves[i]) g.moveTo(xs[i], ys[i]);
+            else g.lineTo(xs[i], ys[i]);
+        }
+        g.stroke();
+    }
+
+}
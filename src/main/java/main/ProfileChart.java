@@ -0,0 +1,179 @@
+package main;
+
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.paint.Color;
+
+/**
+ * ProfileChart.java
+ *
+ * Draws one column of a trajectory (velocity, acceleration, curvature)
+ * against time. Scroll to zoom around the mouse, drag to pan and double
+ * click to show the whole trajectory again.
+ *
+ * Each pixel column draws at most four points: the first, smallest,
+ * largest and last value of the points in it (the smallest and largest
+ * come from a MinMaxPyramid). That looks the same as drawing every point,
+ * and points outside the shown time are never read.
+ */
+
+public class ProfileChart extends Canvas {
+
+    private static final double MARGIN = 4;
+
+    private String title = "";
+    private double[] time = new double[0], values = new double[0];
+    private int size;
+    private MinMaxPyramid pyramid;
+    private final Polyline line = new Polyline();
+    /** Smallest and largest value of the whole column, the chart is scaled to them. */
+    private double min, max;
+
+    /** Time at the left and right edges. */
+    private double start, end = 1;
+    /** Whether the chart shows the whole trajectory, false once the user pans or zooms. */
+    private boolean fitted = true;
+    private double dragX;
+
+    public ProfileChart() {
+        setOnScroll(e -> {
+            double t = start + e.getX() / getWidth() * (end - start);
+            double zoom = Math.pow(1.002, -e.getDeltaY());
+            start = t - (t - start) * zoom;
+            end = t + (end - t) * zoom;
+            fitted = false;
+            draw();
+        });
+        setOnMousePressed(e -> dragX = e.getX());
+        setOnMouseDragged(e -> {
+            double shift = (e.getX() - dragX) / getWidth() * (end - start);
+            start -= shift;
+            end -= shift;
+            dragX = e.getX();
+            fitted = false;
+            draw();
+        });
+        setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+                fitted = true;
+                fit();
+                draw();
+            }
+        });
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * @param time times of the points, increasing.
+     * @param values value of each point.
+     * @param size amount of points, the arrays are not copied so they
+     *             should not change while they are shown.
+     */
+    public void setSeries(double[] time, double[] values, int size) {
+        this.time = time;
+        this.values = values;
+        this.size = size;
+        pyramid = new MinMaxPyramid(values, size);
+        double[] range = new double[2];
+        if (size > 0) {
+            pyramid.range(0, size, range);
+        }
+        min = size > 0 ? range[0] : 0;
+        max = size > 0 ? range[1] : 0;
+        if (max - min < 1e-9) {
+            min -= 1;
+            max += 1;
+        }
+        if (fitted) fit();
+        draw();
+    }
+
+    private void fit() {
+        start = 0;
+        end = size > 1 ? time[size - 1] : 1;
+    }
+
+    public void draw() {
+        GraphicsContext g = getGraphicsContext2D();
+        g.clearRect(0, 0, getWidth(), getHeight());
+        g.setStroke(Color.LIGHTGRAY);
+        g.strokeRect(0.5, 0.5, getWidth() - 1, getHeight() - 1);
+        double zero = y(0, min, max, getHeight());
+        if (zero > 0 && zero < getHeight()) g.strokeLine(0, zero, getWidth(), zero);
+
+        g.setFill(Color.GRAY);
+        g.setTextBaseline(VPos.TOP);
+        g.fillText(String.format("%s  %.3g to %.3g", title, min, max), MARGIN, MARGIN);
+
+        if (pyramid == null) return;
+        decimate(time, values, pyramid, start, end, min, max, getWidth(), getHeight(), line);
+        g.setStroke(Color.BLACK);
+        line.stroke(g);
+    }
+
+    /**
+     * Finds the lines to draw for a series.
+     * @param time times of the points, increasing.
+     * @param values value of each point.
+     * @param pyramid pyramid of the values.
+     * @param start time at the left edge.
+     * @param end time at the right edge.
+     * @param min value at the bottom edge.
+     * @param max value at the top edge.
+     * @param width width of the chart in pixels.
+     * @param height height of the chart in pixels.
+     * @param out where the lines are written.
+     */
+    static void decimate(double[] time, double[] values, MinMaxPyramid pyramid, double start, double end,
+                         double min, double max, double width, double height, Polyline out) {
+        out.clear();
+        int size = pyramid.size();
+        if (size == 0 || end <= start) return;
+        double perPixel = (end - start) / width;
+        // one point on each side of what is shown, so the lines leave the chart instead of stopping at its edge
+        int i = Math.max(0, search(time, size, start) - 1);
+        int last = Math.min(size, search(time, size, end) + 1);
+        double[] range = new double[2];
+        while (i < last) {
+            double column = Math.floor((time[i] - start) / perPixel);
+            int next = Math.max(i + 1, Math.min(last, search(time, size, start + (column + 1) * perPixel)));
+            if (next - i <= 4) {
+                for (int k = i; k < next; k++) out.lineTo((time[k] - start) / perPixel, y(values[k], min, max, height));
+            } else {
+                double x = column + 0.5;
+                pyramid.range(i, next, range);
+                out.lineTo((time[i] - start) / perPixel, y(values[i], min, max, height));
+                out.lineTo(x, y(range[0], min, max, height));
+                out.lineTo(x, y(range[1], min, max, height));
+                out.lineTo((time[next - 1] - start) / perPixel, y(values[next - 1], min, max, height));
+            }
+            i = next;
+        }
+    }
+
+    /**
+     * @return index of the first time at or after t, size if there is none.
+     */
+    private static int search(double[] time, int size, double t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time[mid] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return where a value is drawn, max at the top and min at the bottom.
+     */
+    private static double y(double value, double min, double max, double height) {
+        return MARGIN + (max - value) / (max - min) * (height - 2 * MARGIN);
+    }
+
+}
@@ -0,0 +1,40 @@
+package gen;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * PathLibraryTest.java
+ *
+ * Checks the points of legs stitched into one trajectory.
+ */
+
+public class PathLibraryTest {
+
+    private static final double DT = 0.01;
+
+    private static PathLibrary library() {
+        PathLibrary library = new PathLibrary(Trajectory.FitMethod.QUINTIC_HERMITE, Trajectory.SampleRate.LOW.getRate(),
+                0.8, DT, 10, 20, 60, null);
+        library.define("start", new Waypoint(0, 0, 0), new Waypoint(6, 4, Math.PI / 4));
+        library.define("ship", new Waypoint(6, 4, Math.PI / 4), new Waypoint(12, 5, 0), new Waypoint(18, 2, -Math.PI / 3));
+        library.define("station", new Waypoint(18, 2, -Math.PI / 3), new Waypoint(20, -3, -Math.PI / 2));
+        return library;
+    }
+
+    @Test
+    public void stitchedPointsAreAboutDtApart() {
+        PathLibrary library = library();
+        for (double junctionVelocity = 0; junctionVelocity <= 10; junctionVelocity += 0.5) {
+            TrajectoryBuffer stitched = library.stitch(junctionVelocity, "start", "ship", "station");
+            for (int i = 1; i < stitched.size(); i++) {
+                double step = stitched.time[i] - stitched.time[i - 1];
+                // points copied after re-timed ones can be up to half a step further or nearer
+                assertTrue("step " + step + " at point " + i + " with junction velocity " + junctionVelocity,
+                        step >= DT / 2 - 1e-9 && step <= 1.5 * DT + 1e-9);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package gen;
+
+import gen.segments.Quadrature;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * TrajectoryCacheTest.java
+ *
+ * Checks that trajectories are only shared when they were made from the same settings.
+ */
+
+public class TrajectoryCacheTest {
+
+    private static final Waypoint[] PATH = {
+            new Waypoint(0, 0, 0),
+            new Waypoint(5, 5, Math.PI / 2),
+            new Waypoint(10, 3, -Math.PI / 4)
+    };
+
+    private static Trajectory get(TrajectoryCache cache, Quadrature quadrature) {
+        return cache.get(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.LOW.getRate(), quadrature,
+                0.8, 0.01, 10, 20, 60, PATH);
+    }
+
+    @Test
+    public void quadratureIsPartOfTheKey() {
+        TrajectoryCache cache = new TrajectoryCache(1 << 24, null);
+        Quadrature loose = new Quadrature(1e-3, 1e-3);
+        Trajectory precise = get(cache, Quadrature.DEFAULT);
+        Trajectory rough = get(cache, loose);
+        assertNotSame(precise, rough);
+        assertSame(loose, rough.quadrature);
+        assertSame(precise, get(cache, Quadrature.DEFAULT));
+        assertSame(rough, get(cache, new Quadrature(1e-3, 1e-3)));
+    }
+
+}
@@ -0,0 +1,108 @@
+package gen;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * TrajectoryTest.java
+ *
+ * Checks that the different ways of making a trajectory give the same points.
+ */
+
+public class TrajectoryTest {
+
+    private static final double TIGHTNESS = 0.8, DT = 0.01;
+    private static final double VELOCITY = 10, ACCELERATION = 20, JERK = 60;
+
+    private static Waypoint[] path() {
+        return new Waypoint[] {
+                new Waypoint(0, 0, 0),
+                new Waypoint(5, 5, Math.PI / 2),
+                new Waypoint(10, 3, -Math.PI / 4),
+                new Waypoint(14, 0, 0),
+                new Waypoint(20, 4, Math.PI / 4)
+        };
+    }
+
+    /**
+     * Fails unless every column of both trajectories holds the exact same values.
+     */
+    private static void assertSamePoints(Trajectory expected, Trajectory actual) {
+        TrajectoryBuffer a = expected.getBuffer(), b = actual.getBuffer();
+        assertEquals(a.size(), b.size());
+        double[][] ca = a.columns(), cb = b.columns();
+        for (int c = 0; c < ca.length; c++) {
+            assertArrayEquals(Arrays.copyOf(ca[c], a.size()), Arrays.copyOf(cb[c], b.size()), 0);
+        }
+    }
+
+    @Test
+    public void parallelSamplingMatchesSequential() {
+        for (Trajectory.FitMethod method : Trajectory.FitMethod.values()) {
+            Trajectory sequential = new Trajectory(method, Trajectory.SampleRate.MEDIUM.getRate(), TIGHTNESS, DT,
+                    VELOCITY, ACCELERATION, JERK, false, path());
+            Trajectory parallel = new Trajectory(method, Trajectory.SampleRate.MEDIUM.getRate(), TIGHTNESS, DT,
+                    VELOCITY, ACCELERATION, JERK, true, path());
+            assertSamePoints(sequential, parallel);
+        }
+    }
+
+    @Test
+    public void parallelAdaptiveSamplingMatchesSequential() {
+        Trajectory sequential = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.ADAPTIVE.getRate(),
+                TIGHTNESS, DT, VELOCITY, ACCELERATION, JERK, false, path());
+        Trajectory parallel = new Trajectory(Trajectory.FitMethod.CUBIC_HERMITE, Trajectory.SampleRate.ADAPTIVE.getRate(),
+                TIGHTNESS, DT, VELOCITY, ACCELERATION, JERK, true, path());
+        assertSamePoints(sequential, parallel);
+    }
+
+    @Test
+    public void adaptiveSamplingMatchesLow() {
+        for (Trajectory.FitMethod method : Trajectory.FitMethod.values()) {
+            TrajectoryBuffer low = new Trajectory(method, Trajectory.SampleRate.LOW.getRate(), TIGHTNESS, DT,
+                    VELOCITY, ACCELERATION, JERK, path()).getBuffer();
+            TrajectoryBuffer adaptive = new Trajectory(method, Trajectory.SampleRate.ADAPTIVE.getRate(), TIGHTNESS, DT,
+                    VELOCITY, ACCELERATION, JERK, path()).getBuffer();
+            assertEquals(low.size(), adaptive.size(), 1);
+            // the times drift apart by a few milliseconds, so the points do by a few hundredths
+            for (int i = 0; i < Math.min(low.size(), adaptive.size()); i++) {
+                assertEquals(low.x[i], adaptive.x[i], 0.1);
+                assertEquals(low.y[i], adaptive.y[i], 0.1);
+                assertEquals(0, Math.IEEEremainder(low.heading[i] - adaptive.heading[i], 2 * Math.PI), 0.01);
+            }
+        }
+    }
+
+    private static Trajectory generate(Waypoint... waypoints) {
+        return new Trajectory(Trajectory.FitMethod.QUINTIC_HERMITE, Trajectory.SampleRate.LOW.getRate(), TIGHTNESS, DT,
+                VELOCITY, ACCELERATION, JERK, waypoints);
+    }
+
+    @Test
+    public void editsMatchNewTrajectory() {
+        Waypoint[] waypoints = path();
+        Trajectory edited = generate(waypoints);
+
+        waypoints[2] = waypoints[2].offset(0.5, -0.5);
+        edited = edited.withWaypoints(waypoints);
+        assertSamePoints(generate(waypoints), edited);
+
+        // the samples kept by the last edit are reused from here on
+        waypoints[1] = waypoints[1].offset(-0.3, 0.2);
+        edited = edited.moveWaypoint(1, waypoints[1]);
+        assertSamePoints(generate(waypoints), edited);
+
+        Waypoint added = new Waypoint(17, 1, 0);
+        edited = edited.insertWaypoint(4, added);
+        Waypoint[] inserted = {waypoints[0], waypoints[1], waypoints[2], waypoints[3], added, waypoints[4]};
+        assertSamePoints(generate(inserted), edited);
+
+        edited = edited.removeWaypoint(4);
+        assertSamePoints(generate(waypoints), edited);
+    }
+
+}
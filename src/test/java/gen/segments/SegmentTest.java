@@ -0,0 +1,165 @@
+package gen.segments;
+
+import gen.Spline;
+import gen.Vector;
+import gen.Waypoint;
+import org.junit.Test;
+
+import java.util.function.DoubleFunction;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * SegmentTest.java
+ *
+ * Checks the values segments give for points on them.
+ */
+
+public class SegmentTest {
+
+    private static final double TIGHTNESS = 0.8;
+    private static final Waypoint START = new Waypoint(1, 2, Math.PI / 3);
+    private static final Waypoint END = new Waypoint(7, -1, -Math.PI / 6);
+
+    private static final Segment.SegmentFactory[] FACTORIES = {
+            new CubicBezierSegment.CubicBezierSegmentFactory(),
+            new CubicHermiteSegment.CubicHermiteSegmentFactory(),
+            new QuinticBezierSegment.QuinticBezierSegmentFactory(),
+            new QuinticHermiteSegment.QuinticHermiteSegmentFactory()
+    };
+
+    /** Control points for segments of up to six points, every one different. */
+    private static final Vector[] POINTS = {
+            new Vector(0, 0), new Vector(2, 3), new Vector(5, -1),
+            new Vector(7, 4), new Vector(-2, 1), new Vector(3, -3)
+    };
+
+    /**
+     * @return point of a bezier curve from the bernstein polynomials, C(n, i) t^i (1-t)^(n-i).
+     */
+    private static Vector bezier(int n, double t) {
+        double x = 0, y = 0;
+        for (int i = 0; i <= n; i++) {
+            double b = choose(n, i) * Math.pow(t, i) * Math.pow(1 - t, n - i);
+            x += b * POINTS[i].x;
+            y += b * POINTS[i].y;
+        }
+        return new Vector(x, y);
+    }
+
+    private static double choose(int n, int k) {
+        double c = 1;
+        for (int i = 1; i <= k; i++) c = c * (n - k + i) / i;
+        return c;
+    }
+
+    /**
+     * @return point of a cubic hermite curve from its basis functions.
+     */
+    private static Vector cubicHermite(double t) {
+        double[] h = {
+                2 * Math.pow(t, 3) - 3 * Math.pow(t, 2) + 1,
+                -2 * Math.pow(t, 3) + 3 * Math.pow(t, 2),
+                Math.pow(t, 3) - 2 * Math.pow(t, 2) + t,
+                Math.pow(t, 3) - Math.pow(t, 2)
+        };
+        return combine(h);
+    }
+
+    /**
+     * @return point of a quintic hermite curve from its basis functions.
+     */
+    private static Vector quinticHermite(double t) {
+        double[] h = {
+                1 - 10 * Math.pow(t, 3) + 15 * Math.pow(t, 4) - 6 * Math.pow(t, 5),
+                10 * Math.pow(t, 3) - 15 * Math.pow(t, 4) + 6 * Math.pow(t, 5),
+                t - 6 * Math.pow(t, 3) + 8 * Math.pow(t, 4) - 3 * Math.pow(t, 5),
+                -4 * Math.pow(t, 3) + 7 * Math.pow(t, 4) - 3 * Math.pow(t, 5),
+                0.5 * Math.pow(t, 2) - 1.5 * Math.pow(t, 3) + 1.5 * Math.pow(t, 4) - 0.5 * Math.pow(t, 5),
+                0.5 * Math.pow(t, 3) - Math.pow(t, 4) + 0.5 * Math.pow(t, 5)
+        };
+        return combine(h);
+    }
+
+    private static Vector combine(double[] basis) {
+        double x = 0, y = 0;
+        for (int i = 0; i < basis.length; i++) {
+            x += basis[i] * POINTS[i].x;
+            y += basis[i] * POINTS[i].y;
+        }
+        return new Vector(x, y);
+    }
+
+    /**
+     * Fails unless the segment is on the curve at every point, and its
+     * derivatives match the change of the curve between nearby points.
+     */
+    private static void assertSameCurve(Segment segment, DoubleFunction<Vector> curve) {
+        double h = 1e-5;
+        for (int i = 0; i <= 100; i++) {
+            double alpha = i / 100.0;
+            Vector expected = curve.apply(alpha);
+            Vector actual = segment.getCors(alpha);
+            assertEquals(expected.x, actual.x, 1e-12);
+            assertEquals(expected.y, actual.y, 1e-12);
+
+            Vector before = curve.apply(alpha - h), after = curve.apply(alpha + h);
+            Vector d = segment.differentiate(alpha);
+            assertEquals((after.x - before.x) / (2 * h), d.x, 1e-6);
+            assertEquals((after.y - before.y) / (2 * h), d.y, 1e-6);
+            Vector dd = segment.differentiateS(alpha);
+            assertEquals((after.x - 2 * expected.x + before.x) / (h * h), dd.x, 1e-3);
+            assertEquals((after.y - 2 * expected.y + before.y) / (h * h), dd.y, 1e-3);
+        }
+    }
+
+    @Test
+    public void powerBasisMatchesBasisFunctions() {
+        assertSameCurve(new CubicBezierSegment(POINTS[0], POINTS[1], POINTS[2], POINTS[3]), t -> bezier(3, t));
+        assertSameCurve(new QuinticBezierSegment(POINTS), t -> bezier(5, t));
+        assertSameCurve(new CubicHermiteSegment(POINTS[0], POINTS[1], POINTS[2], POINTS[3]), SegmentTest::cubicHermite);
+        assertSameCurve(new QuinticHermiteSegment(POINTS), SegmentTest::quinticHermite);
+    }
+
+    @Test
+    public void evaluateMatchesSeparateCalls() {
+        SegmentState state = new SegmentState();
+        for (Segment.SegmentFactory factory : FACTORIES) {
+            Segment segment = factory.getInstance(TIGHTNESS, START, END);
+            for (int i = 0; i <= 100; i++) {
+                double alpha = i / 100.0;
+                segment.evaluate(alpha, state);
+                Vector point = segment.getCors(alpha);
+                Vector d = segment.differentiate(alpha);
+                Vector dd = segment.differentiateS(alpha);
+                assertEquals(point.x, state.x, 0);
+                assertEquals(point.y, state.y, 0);
+                assertEquals(d.x, state.dx, 0);
+                assertEquals(d.y, state.dy, 0);
+                assertEquals(dd.x, state.ddx, 0);
+                assertEquals(dd.y, state.ddy, 0);
+                assertEquals(Segment.heading(d.x, d.y), state.heading, 0);
+                assertEquals(segment.curvature(alpha), state.curvature, 0);
+            }
+        }
+    }
+
+    @Test
+    public void splineEvaluateMatchesWaypoint() {
+        Waypoint[] waypoints = {START, END, new Waypoint(12, 3, Math.PI / 2)};
+        SegmentState state = new SegmentState();
+        for (Segment.SegmentFactory factory : FACTORIES) {
+            Spline spline = new Spline(TIGHTNESS, factory, waypoints);
+            for (int i = 0; i <= 100; i++) {
+                double alpha = i / 100.0;
+                spline.evaluate(alpha, state);
+                Waypoint wp = spline.getWaypoint(alpha);
+                assertEquals(wp.x, state.x, 0);
+                assertEquals(wp.y, state.y, 0);
+                assertEquals(spline.getHeading(alpha), state.heading, 0);
+                assertEquals(spline.getCurvature(alpha), state.curvature, 0);
+            }
+        }
+    }
+
+}